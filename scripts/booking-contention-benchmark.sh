@@ -0,0 +1,51 @@
+#!/usr/bin/env bash
+# Many concurrent clients booking the same product against a running instance.
+#   MODE=same      every request asks for the same nights, exactly one must succeed
+#   MODE=distinct  every request asks for a different night, all must succeed
+# Prints the accepted and rejected bookings and the requests per second.
+#
+# TOKEN is the Authorization header of a valid user and PRODUCT_ID an existing product.
+# Each run books nights in a random future year so runs do not collide with each other.
+#
+# Usage: TOKEN=... PRODUCT_ID=... THREADS=64 REQUESTS=2000 MODE=distinct scripts/booking-contention-benchmark.sh
+set -euo pipefail
+
+URL=${URL:-http://localhost:8080}
+THREADS=${THREADS:-64}
+REQUESTS=${REQUESTS:-1000}
+MODE=${MODE:-distinct}
+: "${TOKEN:?TOKEN is required}"
+: "${PRODUCT_ID:?PRODUCT_ID is required}"
+
+DAY=86400000
+BASE=$(( ($(date +%s) / 86400 + 365 * (5 + RANDOM % 50)) * DAY ))
+
+book() {
+    local i=$1 start
+    if [ "$MODE" = "same" ]; then
+        start=$BASE
+    else
+        start=$((BASE + i * DAY))
+    fi
+    curl -s -o /dev/null -w "%{http_code}\n" -X POST "$URL/api/products/reserve" \
+        -H "Authorization: $TOKEN" -H "Content-Type: application/json" \
+        -d "{\"productId\":\"$PRODUCT_ID\",\"start\":$start,\"end\":$((start + DAY))}"
+}
+export -f book
+export URL TOKEN PRODUCT_ID MODE BASE DAY
+
+started=$(date +%s%3N)
+codes=$(seq 0 $((REQUESTS - 1)) | xargs -P "$THREADS" -I{} bash -c 'book {}')
+millis=$(( $(date +%s%3N) - started ))
+
+accepted=$(grep -c '^200$' <<< "$codes" || true)
+rejected=$(grep -c '^409$' <<< "$codes" || true)
+failed=$((REQUESTS - accepted - rejected))
+
+printf "mode %s, %d threads, %d requests in %d ms (%d req/s)\n" "$MODE" "$THREADS" "$REQUESTS" "$millis" $((REQUESTS * 1000 / (millis > 0 ? millis : 1)))
+printf "accepted %d, rejected %d, failed %d\n" "$accepted" "$rejected" "$failed"
+
+if [ "$MODE" = "same" ] && [ "$accepted" -ne 1 ]; then
+    echo "expected exactly one accepted booking" >&2
+    exit 1
+fi
@@ -0,0 +1,27 @@
+#!/usr/bin/env bash
+# Creates the .gz and .br variants of the react build, served by StaticResourceConfig
+# to browsers that accept them. Run it after npm run build.
+#
+# Usage: scripts/compress-assets.sh [build directory, default client/build]
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+BUILD=${1:-client/build}
+
+if ! command -v brotli > /dev/null; then
+    echo "brotli not found, only gzip variants will be created" >&2
+fi
+
+find "$BUILD" -type f \( -name '*.js' -o -name '*.css' -o -name '*.html' -o -name '*.json' \
+    -o -name '*.svg' -o -name '*.txt' -o -name '*.map' -o -name '*.ico' \) -print0 |
+while IFS= read -r -d '' file; do
+    # small files are not worth it
+    if [ "$(wc -c < "$file")" -lt 1024 ]; then
+        continue
+    fi
+    gzip -k -f -9 "$file"
+    if command -v brotli > /dev/null; then
+        brotli -k -f -q 11 "$file"
+    fi
+done
@@ -0,0 +1,122 @@
+#!/usr/bin/env bash
+# Compares the time until SmartStay answers its first request in each startup mode:
+#   jar     executable jar (mvn package)
+#   cds     extracted jar with a class data sharing archive
+#   aot     extracted jar with CDS and the AOT generated context (mvn -Pcds package)
+#   native  GraalVM native image (mvn -Pnative native:compile)
+#
+# The environment needs the same variables as a normal run (Mongo, JWT, mail, URL).
+# The CDS archive is created by a training run. TRAINING=http (default) starts the
+# application and calls the main endpoints before stopping it, so the archive also has
+# the classes loaded by the controllers, Jackson and the Mongo converters.
+# TRAINING=refresh only refreshes the context and does not need a reachable database.
+#
+# Usage: MODES="jar aot" RUNS=3 scripts/startup-benchmark.sh
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+PORT=${PORT:-8080}
+RUNS=${RUNS:-5}
+MODES=${MODES:-"jar cds aot native"}
+TRAINING=${TRAINING:-http}
+
+JAR=target/SmartStay-0.0.1-SNAPSHOT.jar
+NATIVE=target/SmartStay
+APP=target/application
+APP_JAR=$APP/SmartStay-0.0.1-SNAPSHOT.jar
+URL="http://localhost:$PORT"
+
+now_millis() {
+    date +%s%3N
+}
+
+wait_for_app() {
+    local pid=$1
+    until curl -s -o /dev/null "$URL/api/categories"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "application exited before answering" >&2
+            return 1
+        fi
+        sleep 0.05
+    done
+}
+
+stop_app() {
+    kill -TERM "$1" 2>/dev/null || true
+    wait "$1" 2>/dev/null || true
+}
+
+# requests of the training run, the same ones a visitor of the home page makes
+exercise() {
+    for path in /api/products/home /api/products/addresses /api/categories "/api/products/search?query=a" /; do
+        curl -s -o /dev/null "$URL$path" || true
+    done
+}
+
+# creates $APP/app.jsa, $1 are the extra jvm arguments of the mode
+train() {
+    rm -rf "$APP"
+    java -Djarmode=tools -jar "$JAR" extract --destination "$APP" > /dev/null
+
+    if [ "$TRAINING" = "refresh" ]; then
+        java -XX:ArchiveClassesAtExit="$APP/app.jsa" -Dspring.context.exit=onRefresh $1 -jar "$APP_JAR" > /dev/null
+        return
+    fi
+
+    java -XX:ArchiveClassesAtExit="$APP/app.jsa" $1 -Dserver.port="$PORT" -jar "$APP_JAR" > /dev/null &
+    local pid=$!
+    wait_for_app "$pid"
+    exercise
+    # the archive is written when the jvm exits
+    stop_app "$pid"
+}
+
+# prints the milliseconds until the first answered request
+measure() {
+    local start pid
+    start=$(now_millis)
+    "$@" > /dev/null 2>&1 &
+    pid=$!
+    wait_for_app "$pid"
+    echo $(( $(now_millis) - start ))
+    stop_app "$pid"
+}
+
+benchmark() {
+    local mode=$1
+    shift
+    local total=0 run millis
+    for run in $(seq 1 "$RUNS"); do
+        millis=$(measure "$@")
+        total=$((total + millis))
+    done
+    printf "%-8s %6d ms (average of %d runs)\n" "$mode" $((total / RUNS)) "$RUNS"
+}
+
+for mode in $MODES; do
+    case $mode in
+        jar)
+            benchmark jar java -Dserver.port="$PORT" -jar "$JAR"
+            ;;
+        cds)
+            train ""
+            benchmark cds java -XX:SharedArchiveFile="$APP/app.jsa" -Dserver.port="$PORT" -jar "$APP_JAR"
+            ;;
+        aot)
+            train "-Dspring.aot.enabled=true"
+            benchmark aot java -XX:SharedArchiveFile="$APP/app.jsa" -Dspring.aot.enabled=true -Dserver.port="$PORT" -jar "$APP_JAR"
+            ;;
+        native)
+            if [ ! -x "$NATIVE" ]; then
+                echo "native    skipped, build it with mvn -Pnative native:compile"
+                continue
+            fi
+            benchmark native "$NATIVE" -Dserver.port="$PORT"
+            ;;
+        *)
+            echo "unknown mode $mode" >&2
+            exit 1
+            ;;
+    esac
+done
@@ -0,0 +1,107 @@
+package com.example.SmartStay.analytics;
+
+import com.example.SmartStay.reservation.AvailabilityService;
+import com.example.SmartStay.user.UserService;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collections;
+import java.util.List;
+
+// admin dashboard, every figure is read from the daily rollups
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    private static final int MAX_DAYS = 366;
+    private static final int MAX_LIMIT = 100;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private UserService userService;
+
+    @GetMapping("/products/{id}")
+    public ResponseEntity<List<DailyRollup>> getProductDays(@PathVariable ObjectId id,
+                                                            @RequestParam(required = false) Long from,
+                                                            @RequestParam(defaultValue = "30") int days,
+                                                            @RequestHeader("Authorization") String token) {
+        return getDays(AnalyticsService.PRODUCT, id.toString(), from, days, token);
+    }
+
+    // key is country/city
+    @GetMapping("/cities/days")
+    public ResponseEntity<List<DailyRollup>> getCityDays(@RequestParam String key,
+                                                         @RequestParam(required = false) Long from,
+                                                         @RequestParam(defaultValue = "30") int days,
+                                                         @RequestHeader("Authorization") String token) {
+        return getDays(AnalyticsService.CITY, key, from, days, token);
+    }
+
+    @GetMapping("/products")
+    public ResponseEntity<List<RollupTotals>> getTopProducts(@RequestParam(required = false) Long from,
+                                                             @RequestParam(defaultValue = "30") int days,
+                                                             @RequestParam(defaultValue = "nights") String sort,
+                                                             @RequestParam(defaultValue = "20") int limit,
+                                                             @RequestHeader("Authorization") String token) {
+        return getTop(AnalyticsService.PRODUCT, from, days, sort, limit, token);
+    }
+
+    @GetMapping("/cities")
+    public ResponseEntity<List<RollupTotals>> getTopCities(@RequestParam(required = false) Long from,
+                                                           @RequestParam(defaultValue = "30") int days,
+                                                           @RequestParam(defaultValue = "nights") String sort,
+                                                           @RequestParam(defaultValue = "20") int limit,
+                                                           @RequestHeader("Authorization") String token) {
+        return getTop(AnalyticsService.CITY, from, days, sort, limit, token);
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<String> rebuild(@RequestHeader("Authorization") String token) {
+        if (!userService.isAdmin(token)) {
+            return new ResponseEntity<>("null", HttpStatus.UNAUTHORIZED);
+        }
+
+        // check if a rebuild is already running
+        if (!analyticsService.rebuild()) {
+            return new ResponseEntity<>("null", HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>("rebuilt", HttpStatus.OK);
+    }
+
+    private ResponseEntity<List<DailyRollup>> getDays(String scope, String key, Long from, int days, String token) {
+        if (!userService.isAdmin(token)) {
+            return new ResponseEntity<>(Collections.emptyList(), HttpStatus.UNAUTHORIZED);
+        }
+        if (days < 1 || days > MAX_DAYS) {
+            return new ResponseEntity<>(Collections.emptyList(), HttpStatus.BAD_REQUEST);
+        }
+
+        long fromDay = fromDay(from, days);
+        return new ResponseEntity<>(analyticsService.getDays(scope, key, fromDay, fromDay + days), HttpStatus.OK);
+    }
+
+    private ResponseEntity<List<RollupTotals>> getTop(String scope, Long from, int days, String sort, int limit, String token) {
+        if (!userService.isAdmin(token)) {
+            return new ResponseEntity<>(Collections.emptyList(), HttpStatus.UNAUTHORIZED);
+        }
+        if (days < 1 || days > MAX_DAYS || limit < 1 || limit > MAX_LIMIT || !AnalyticsService.SORT_FIELDS.containsKey(sort)) {
+            return new ResponseEntity<>(Collections.emptyList(), HttpStatus.BAD_REQUEST);
+        }
+
+        long fromDay = fromDay(from, days);
+        return new ResponseEntity<>(analyticsService.getTop(scope, fromDay, fromDay + days, sort, limit), HttpStatus.OK);
+    }
+
+    // without from, the range ends today
+    private static long fromDay(Long from, int days) {
+        if (from != null) {
+            return AvailabilityService.toEpochDay(from);
+        }
+        return AvailabilityService.toEpochDay(System.currentTimeMillis()) - days + 1;
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.SmartStay.analytics;
+
+import com.example.SmartStay.product.Address;
+import com.example.SmartStay.product.ProductRepository;
+import com.example.SmartStay.product.ProductSummary;
+import com.example.SmartStay.reservation.AvailabilityService;
+import com.example.SmartStay.reservation.Reservation;
+import com.example.SmartStay.review.Review;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+@Service
+public class AnalyticsService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnalyticsService.class);
+
+    public static final String PRODUCT = "product";
+    public static final String CITY = "city";
+
+    // fields the totals can be sorted by
+    public static final Map<String, String> SORT_FIELDS = Map.of(
+            "nights", "nightsBooked",
+            "bookings", "bookings",
+            "reviews", "ratingCount",
+            "rating", "averageRating",
+            "wishlist", "wishlistAdds"
+    );
+
+    private static final int BATCH_SIZE = 1000;
+
+    // counters written by the rebuild, wishlist adds have no history and are kept
+    private static final String[] REBUILT_FIELDS = {"nightsBooked", "bookings", "ratingSum", "ratingCount"};
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    // analytics are best effort, a failed increment must not fail the booking or review
+    public void recordBooking(Reservation reservation, Address address) {
+        long today = AvailabilityService.toEpochDay(System.currentTimeMillis());
+        increment(bulk -> {
+            upsert(bulk, PRODUCT, reservation.getProductId(), today, new Update().inc("bookings", 1));
+            upsert(bulk, CITY, cityKey(address), today, new Update().inc("bookings", 1));
+            long end = AvailabilityService.toEpochDay(reservation.getEnd());
+            for (long day = AvailabilityService.toEpochDay(reservation.getStart()); day < end; day++) {
+                upsert(bulk, PRODUCT, reservation.getProductId(), day, new Update().inc("nightsBooked", 1));
+                upsert(bulk, CITY, cityKey(address), day, new Update().inc("nightsBooked", 1));
+            }
+        });
+    }
+
+    public void recordReview(Review review, Address address) {
+        long today = AvailabilityService.toEpochDay(System.currentTimeMillis());
+        increment(bulk -> {
+            upsert(bulk, PRODUCT, review.getProductId(), today, new Update().inc("ratingSum", review.getRating()).inc("ratingCount", 1));
+            upsert(bulk, CITY, cityKey(address), today, new Update().inc("ratingSum", review.getRating()).inc("ratingCount", 1));
+        });
+    }
+
+    public void recordWishlistAdd(String productId, Address address) {
+        long today = AvailabilityService.toEpochDay(System.currentTimeMillis());
+        increment(bulk -> {
+            upsert(bulk, PRODUCT, productId, today, new Update().inc("wishlistAdds", 1));
+            upsert(bulk, CITY, cityKey(address), today, new Update().inc("wishlistAdds", 1));
+        });
+    }
+
+    private void increment(Consumer<BulkOperations> operations) {
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyRollup.class);
+            operations.accept(bulk);
+            bulk.execute();
+        } catch (Exception e) {
+            LOGGER.warn("Could not update the analytics rollups: " + e.getMessage());
+        }
+    }
+
+    private static void upsert(BulkOperations bulk, String scope, String key, long day, Update update) {
+        bulk.upsert(Query.query(Criteria.where("_id").is(id(scope, key, day))), update
+                .setOnInsert("scope", scope)
+                .setOnInsert("key", key)
+                .setOnInsert("day", day));
+    }
+
+    private static String id(String scope, String key, long day) {
+        return scope + ":" + key + ":" + day;
+    }
+
+    private static String cityKey(Address address) {
+        if (address == null) {
+            return "unknown";
+        }
+        return address.getCountry() + "/" + address.getCity();
+    }
+
+    // days of one product or city in [fromDay, toDay), days without activity are not returned
+    public List<DailyRollup> getDays(String scope, String key, long fromDay, long toDay) {
+        Query query = Query.query(Criteria.where("scope").is(scope).and("key").is(key).and("day").gte(fromDay).lt(toDay))
+                .with(Sort.by("day"));
+        return mongoTemplate.find(query, DailyRollup.class);
+    }
+
+    // the products or cities with the highest totals in [fromDay, toDay)
+    public List<RollupTotals> getTop(String scope, long fromDay, long toDay, String sort, int limit) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("scope").is(scope).and("day").gte(fromDay).lt(toDay)),
+                Aggregation.group("key")
+                        .sum("nightsBooked").as("nightsBooked")
+                        .sum("bookings").as("bookings")
+                        .sum("ratingSum").as("ratingSum")
+                        .sum("ratingCount").as("ratingCount")
+                        .sum("wishlistAdds").as("wishlistAdds"),
+                context -> new Document("$addFields", new Document("key", "$_id")
+                        .append("averageRating", new Document("$cond", List.of(
+                                new Document("$eq", List.of("$ratingCount", 0)), 0,
+                                new Document("$divide", List.of("$ratingSum", "$ratingCount")))))),
+                context -> new Document("$sort", new Document(SORT_FIELDS.get(sort), -1).append("_id", 1)),
+                Aggregation.limit(limit)
+        );
+        return mongoTemplate.aggregate(aggregation, DailyRollup.class, RollupTotals.class).getMappedResults();
+    }
+
+    /**
+     * Recomputes the booking and review counters from the reservations and reviews, one city and its products
+     * at a time. Counters are overwritten with the recomputed values, so the dashboards keep reading the old
+     * ones until then. A booking or review of the city being rebuilt can be counted twice or lost, so it is
+     * meant for repairs outside peak hours.
+     * Runs with smartstay.analytics.rebuild-cron, disabled by default, or from the admin endpoint.
+     * Returns false if a rebuild is already running on this node.
+     */
+    @Scheduled(cron = "${smartstay.analytics.rebuild-cron:-}")
+    public boolean rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            Map<String, Address> addresses = new HashMap<>();
+            for (ProductSummary product : productRepository.findAllAddresses()) {
+                addresses.put(product.getId(), product.getAddress());
+            }
+
+            // products with reservations or reviews, deleted products are in the unknown city
+            Set<String> productIds = new HashSet<>(mongoTemplate.findDistinct(new Query(), "productId", Reservation.class, String.class));
+            productIds.addAll(mongoTemplate.findDistinct(new Query(), "productId", Review.class, String.class));
+            Map<String, Set<String>> productsByCity = new HashMap<>();
+            for (String productId : productIds) {
+                productsByCity.computeIfAbsent(cityKey(addresses.get(productId)), city -> new HashSet<>()).add(productId);
+            }
+
+            int rollups = 0;
+            for (Map.Entry<String, Set<String>> city : productsByCity.entrySet()) {
+                rollups += rebuild(city.getKey(), city.getValue());
+            }
+
+            // products and cities without reservations or reviews left
+            for (String scope : List.of(PRODUCT, CITY)) {
+                Set<String> rebuilt = scope.equals(PRODUCT) ? productIds : productsByCity.keySet();
+                List<String> stale = mongoTemplate.findDistinct(Query.query(Criteria.where("scope").is(scope)), "key", DailyRollup.class, String.class)
+                        .stream()
+                        .filter(key -> !rebuilt.contains(key))
+                        .toList();
+                if (!stale.isEmpty()) {
+                    Update reset = new Update();
+                    for (String field : REBUILT_FIELDS) {
+                        reset.set(field, 0L);
+                    }
+                    mongoTemplate.updateMulti(Query.query(Criteria.where("scope").is(scope).and("key").in(stale)), reset, DailyRollup.class);
+                }
+            }
+            LOGGER.info("Rebuilt " + rollups + " analytics rollups");
+            return true;
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    // only the reservations and reviews of one city are in memory, returns the rollups written
+    private int rebuild(String city, Set<String> productIds) {
+        Map<String, long[]> counters = new HashMap<>();
+        Query activity = Query.query(Criteria.where("productId").in(productIds));
+        try (Stream<Reservation> reservations = mongoTemplate.stream(activity, Reservation.class)) {
+            reservations.forEach(reservation -> addReservation(counters, reservation, city));
+        }
+        try (Stream<Review> reviews = mongoTemplate.stream(activity, Review.class)) {
+            reviews.forEach(review -> addReview(counters, review, city));
+        }
+
+        // days that had activity and have none now are set to 0
+        Query existing = Query.query(new Criteria().orOperator(
+                Criteria.where("scope").is(PRODUCT).and("key").in(productIds),
+                Criteria.where("scope").is(CITY).and("key").is(city)));
+        existing.fields().include("_id");
+        try (Stream<DailyRollup> rollups = mongoTemplate.stream(existing, DailyRollup.class)) {
+            rollups.forEach(rollup -> counters.putIfAbsent(rollup.getId(), new long[REBUILT_FIELDS.length]));
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyRollup.class);
+        int pending = 0;
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            RollupId id = RollupId.parse(entry.getKey());
+            Update update = new Update();
+            for (int i = 0; i < REBUILT_FIELDS.length; i++) {
+                update.set(REBUILT_FIELDS[i], entry.getValue()[i]);
+            }
+            upsert(bulk, id.scope(), id.key(), id.day(), update);
+            if (++pending == BATCH_SIZE) {
+                bulk.execute();
+                bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyRollup.class);
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            bulk.execute();
+        }
+        return counters.size();
+    }
+
+    // a booking counts on the day it was made, its nights on their own days
+    static void addReservation(Map<String, long[]> counters, Reservation reservation, String city) {
+        long bookedDay = AvailabilityService.toEpochDay(new ObjectId(reservation.getId()).getDate().getTime());
+        add(counters, PRODUCT, reservation.getProductId(), bookedDay, 1, 1);
+        add(counters, CITY, city, bookedDay, 1, 1);
+        long end = AvailabilityService.toEpochDay(reservation.getEnd());
+        for (long day = AvailabilityService.toEpochDay(reservation.getStart()); day < end; day++) {
+            add(counters, PRODUCT, reservation.getProductId(), day, 0, 1);
+            add(counters, CITY, city, day, 0, 1);
+        }
+    }
+
+    static void addReview(Map<String, long[]> counters, Review review, String city) {
+        long day = AvailabilityService.toEpochDay(new ObjectId(review.getId()).getDate().getTime());
+        add(counters, PRODUCT, review.getProductId(), day, 2, review.getRating());
+        add(counters, PRODUCT, review.getProductId(), day, 3, 1);
+        add(counters, CITY, city, day, 2, review.getRating());
+        add(counters, CITY, city, day, 3, 1);
+    }
+
+    // field is the index in REBUILT_FIELDS
+    private static void add(Map<String, long[]> counters, String scope, String key, long day, int field, long value) {
+        counters.computeIfAbsent(id(scope, key, day), id -> new long[REBUILT_FIELDS.length])[field] += value;
+    }
+
+    record RollupId(String scope, String key, long day) {
+
+        // scope:key:day, the key of a city can have colons
+        static RollupId parse(String id) {
+            return new RollupId(id.substring(0, id.indexOf(':')),
+                    id.substring(id.indexOf(':') + 1, id.lastIndexOf(':')),
+                    Long.parseLong(id.substring(id.lastIndexOf(':') + 1)));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.SmartStay.analytics;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Counters of one product or city for one day, incremented on every booking, review and wishlist add.
+ * The id is scope:key:day, scope is product (key is the product id) or city (key is country/city).
+ * Nights are counted on the day of the night, bookings, ratings and wishlist adds on the day they were made.
+ */
+@Getter
+@NoArgsConstructor
+@Document(collection = "daily_rollups")
+@CompoundIndexes({
+        // days of one product or city
+        @CompoundIndex(name = "scope_key_day_idx", def = "{'scope': 1, 'key': 1, 'day': 1}"),
+        // totals of every product or city in a range of days
+        @CompoundIndex(name = "scope_day_idx", def = "{'scope': 1, 'day': 1}")
+})
+public class DailyRollup {
+
+    @Id
+    private String id;
+    private String scope;
+    private String key;
+    // epoch day
+    private long day;
+    private long nightsBooked;
+    private long bookings;
+    private long ratingSum;
+    private long ratingCount;
+    private long wishlistAdds;
+}
@@ -0,0 +1,20 @@
+package com.example.SmartStay.analytics;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// sum of the daily rollups of a product or city in a range of days
+@Getter
+@NoArgsConstructor
+public class RollupTotals {
+    private String key;
+    private long nightsBooked;
+    private long bookings;
+    private long ratingSum;
+    private long ratingCount;
+    private long wishlistAdds;
+
+    public double getAverageRating() {
+        return ratingCount == 0 ? 0 : (double) ratingSum / ratingCount;
+    }
+}
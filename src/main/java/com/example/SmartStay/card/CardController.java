@@ -1,43 +1,58 @@
 package com.example.SmartStay.card;
 
-import com.example.SmartStay.product.Product;
-import com.example.SmartStay.product.ProductService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
-import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Controller
 public class CardController {
 
     @Autowired
-    ProductService productService;
-
-    @Value("${env.URL}")
-    private String URL;
+    CardService cardService;
 
     @GetMapping("/productCard")
-    public String getProductCard(@RequestParam String id, Model model, HttpServletRequest request) {
-        Optional<Product> product = productService.getProductById(new ObjectId(id));
-        if (product.isEmpty()) {
-            return "redirect:/";
+    public ResponseEntity<String> getProductCard(@RequestParam String id, HttpServletRequest request) {
+        if (!ObjectId.isValid(id)) {
+            return redirect("/");
         }
 
+        // users are redirected before reading the product, only crawlers get the card
         String userAgent = request.getHeader("User-Agent");
         if (userAgent != null && !(userAgent.contains("Twitterbot") || userAgent.contains("facebookexternalhit"))) {
             // Redirect users to the product page
-            return "redirect:/product?id=" + product.get().getId();
+            return redirect("/product?id=" + id);
+        }
+
+        Optional<RenderedCard> card = cardService.getCard(new ObjectId(id));
+        if (card.isEmpty()) {
+            return redirect("/");
         }
 
-        // set map url, used in html to redirect to product page
-        product.get().setMapUrl(URL + "/product?id=" + product.get().getId());
-        model.addAttribute("product", product.get());
-        return "productCard";
+        // the crawler already has this version of the card
+        if (card.get().getEtag().equals(request.getHeader("If-None-Match"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(card.get().getEtag()).build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+                .eTag(card.get().getEtag())
+                .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic())
+                .body(card.get().getHtml());
+    }
+
+    private static ResponseEntity<String> redirect(String path) {
+        return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(path)).build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package com.example.SmartStay.card;
+
+import com.example.SmartStay.product.Product;
+import com.example.SmartStay.product.ProductService;
+import com.example.SmartStay.websocket.BroadcastEvent;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class CardService {
+
+    private static final int MAX_CARDS = 5_000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private SpringTemplateEngine templateEngine;
+
+    @Value("${env.URL}")
+    private String URL;
+
+    // rendered html per product id, least recently used cards are removed first
+    private final Map<String, RenderedCard> cards = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RenderedCard> eldest) {
+            return size() > MAX_CARDS;
+        }
+    });
+
+    // incremented on every invalidation, a card of a product read before it is not stored
+    private final AtomicLong version = new AtomicLong();
+
+    public Optional<RenderedCard> getCard(ObjectId id) {
+        String productId = id.toHexString();
+        RenderedCard card = cards.get(productId);
+        if (card != null) {
+            return Optional.of(card);
+        }
+
+        long version = this.version.get();
+        Optional<Product> product = productService.getProductById(id);
+        if (product.isEmpty()) {
+            return Optional.empty();
+        }
+
+        card = render(product.get());
+        synchronized (cards) {
+            if (this.version.get() == version) {
+                cards.put(productId, card);
+            }
+        }
+        return Optional.of(card);
+    }
+
+    private RenderedCard render(Product product) {
+        Context context = new Context();
+        context.setVariable("product", product);
+        // used in html to redirect to product page
+        context.setVariable("url", URL + "/product?id=" + product.getId());
+        List<String> images = product.getImages();
+        context.setVariable("image", images == null || images.isEmpty() ? null : toAbsoluteUrl(images.get(0)));
+        return new RenderedCard(templateEngine.process("productCard", context));
+    }
+
+    // crawlers do not resolve the relative urls of the uploaded images
+    private String toAbsoluteUrl(String image) {
+        return image != null && image.startsWith("/") ? URL + image : image;
+    }
+
+    // edits and deletes on any node, including bulk imports
+    @EventListener
+    public void onBroadcastEvent(BroadcastEvent event) {
+        if (event.getEvent().equals("updateProduct") || event.getEvent().equals("deleteProduct")) {
+            version.incrementAndGet();
+            synchronized (cards) {
+                for (Object productId : event.getData()) {
+                    cards.remove(String.valueOf(productId));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.SmartStay.card;
+
+import lombok.Getter;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+@Getter
+public class RenderedCard {
+    private final String html;
+    // same on every node for the same product version
+    private final String etag;
+
+    public RenderedCard(String html) {
+        this.html = html;
+        this.etag = "\"" + DigestUtils.md5DigestAsHex(html.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -1,13 +1,24 @@
 package com.example.SmartStay.category;
 
 import com.example.SmartStay.product.Product;
+import com.example.SmartStay.util.TextUtil;
+import com.example.SmartStay.websocket.BroadcastEvent;
 import com.example.SmartStay.websocket.WebSocketService;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class CategoryService {
@@ -18,6 +29,14 @@ public class CategoryService {
     @Autowired
     WebSocketService webSocketService;
 
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    // folded name -> category id, read again after a category event
+    private volatile Map<String, ObjectId> idsByName;
+    // incremented on every category event, names read before it are not kept
+    private final AtomicLong version = new AtomicLong();
+
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
@@ -64,10 +83,56 @@ public class CategoryService {
         webSocketService.sendMessage("updateCategory", List.of(category.getId()));
     }
 
+    // adds many products with one update, the caller sends the websocket message
+    public boolean addProductsToCategory(ObjectId categoryId, Collection<String> productIds) {
+        Update update = new Update().addToSet("products").each(productIds.toArray());
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(categoryId)), update, Category.class).getMatchedCount() > 0;
+    }
+
     public Optional<Category> getCategoryByName(String name) {
         return Optional.ofNullable(categoryRepository.findByName(name));
     }
 
+    // the name in any case and with or without accents, as the search words are folded
+    public Optional<Category> getCategoryByFoldedName(String name) {
+        ObjectId id = getIdsByName().get(TextUtil.fold(name));
+        return id == null ? Optional.empty() : categoryRepository.findById(id);
+    }
+
+    @EventListener
+    public void onBroadcastEvent(BroadcastEvent event) {
+        switch (event.getEvent()) {
+            case "createCategory", "updateCategory", "deleteCategory" -> {
+                synchronized (this) {
+                    version.incrementAndGet();
+                    idsByName = null;
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private Map<String, ObjectId> getIdsByName() {
+        Map<String, ObjectId> names = idsByName;
+        if (names != null) {
+            return names;
+        }
+        long loadedVersion = version.get();
+        names = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            if (category.getName() != null) {
+                names.putIfAbsent(TextUtil.fold(category.getName()), new ObjectId(category.getId()));
+            }
+        }
+        synchronized (this) {
+            if (version.get() == loadedVersion) {
+                idsByName = names;
+            }
+        }
+        return names;
+    }
+
     public void deleteCategory(ObjectId id) {
         categoryRepository.deleteById(id);
     }
@@ -0,0 +1,17 @@
+package com.example.SmartStay.config;
+
+import com.fasterxml.jackson.databind.Module;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.geo.GeoJsonModule;
+
+@Configuration
+public class GeoJsonConfig {
+
+    // Spring Data only registers the GeoJSON deserializers, this writes Address.location
+    // back as {"type": "Point", "coordinates": [lng, lat]} instead of the bean properties
+    @Bean
+    public Module geoJsonSerializers() {
+        return GeoJsonModule.serializers();
+    }
+}
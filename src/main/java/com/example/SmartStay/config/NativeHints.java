@@ -0,0 +1,55 @@
+package com.example.SmartStay.config;
+
+import com.example.SmartStay.analytics.DailyRollup;
+import com.example.SmartStay.analytics.RollupTotals;
+import com.example.SmartStay.category.Category;
+import com.example.SmartStay.category.CreateCategoryRequest;
+import com.example.SmartStay.image.ImageUpload;
+import com.example.SmartStay.product.*;
+import com.example.SmartStay.reservation.*;
+import com.example.SmartStay.review.*;
+import com.example.SmartStay.suggest.Suggestion;
+import com.example.SmartStay.user.*;
+import com.example.SmartStay.websocket.Change;
+import com.example.SmartStay.websocket.ChangePage;
+import com.example.SmartStay.websocket.SessionStats;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+/**
+ * Reflection hints for the native image. Documents and results are read and written by the
+ * Mongo converter through their fields, and the Lombok DTOs by Jackson through getters and fields.
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    private static final Class<?>[] TYPES = {
+            // documents
+            Product.class, Address.class, Policy.class, Category.class, Reservation.class, Review.class, User.class,
+            NightSlot.class, DailyRollup.class,
+            // requests
+            CreateProductRequest.class, UpdateProductRequest.class, CreateCategoryRequest.class, ReservationRequest.class,
+            ReviewRequest.class, CreateUserRequest.class, LoginUserRequest.class, SetAdminRequest.class,
+            UpdateUserNameRequest.class, UpdateUserPasswordRequest.class,
+            // responses and aggregation results
+            ProductCard.class, ProductRatingDTO.class, ProductDistanceDTO.class, ProductImportResult.class,
+            AvailabilityCalendar.class, RatingSummary.class, RatingCount.class, RatingHistogram.class, ReviewPage.class,
+            UserNameProjection.class, ProductBatch.class, Change.class, ChangePage.class,
+            Trip.class, TripPage.class, RollupTotals.class, SearchCacheStats.class,
+            Suggestion.class, ImageUpload.class, SessionStats.class
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> type : TYPES) {
+            hints.reflection().registerType(type, MemberCategory.values());
+        }
+
+        // private message class serialized by WebSocketHandler
+        hints.reflection().registerType(TypeReference.of("com.example.SmartStay.websocket.WebSocketHandler$CustomMessage"), MemberCategory.values());
+
+        hints.resources().registerPattern("templates/*.html");
+        hints.resources().registerPattern("banner.txt");
+    }
+}
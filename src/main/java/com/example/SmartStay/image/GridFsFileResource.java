@@ -0,0 +1,54 @@
+package com.example.SmartStay.image;
+
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.springframework.core.io.AbstractResource;
+
+import java.io.InputStream;
+
+// a stored file, every getInputStream opens a new download stream so a range request can read it more than once
+public class GridFsFileResource extends AbstractResource {
+
+    private final GridFSBucket bucket;
+    private final GridFSFile file;
+
+    public GridFsFileResource(GridFSBucket bucket, GridFSFile file) {
+        this.bucket = bucket;
+        this.file = file;
+    }
+
+    public GridFSFile getGridFSFile() {
+        return file;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        // reads chunk by chunk, skip moves to the chunk of the offset
+        return bucket.openDownloadStream(file.getObjectId());
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return file.getLength();
+    }
+
+    @Override
+    public long lastModified() {
+        return file.getUploadDate().getTime();
+    }
+
+    @Override
+    public String getFilename() {
+        return file.getFilename();
+    }
+
+    @Override
+    public String getDescription() {
+        return "GridFS file [" + file.getObjectId().toHexString() + "]";
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.SmartStay.image;
+
+import com.example.SmartStay.user.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/images")
+public class ImageController {
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private UserService userService;
+
+    @PostMapping
+    public ResponseEntity<ImageUpload> uploadImage(@RequestParam("file") MultipartFile file, @RequestHeader("Authorization") String token) throws IOException {
+        if (!userService.isAdmin(token)) {
+            return new ResponseEntity<>(null, HttpStatus.UNAUTHORIZED);
+        }
+
+        // check if file is a supported image
+        String id = imageService.store(file.getOriginalFilename(), file.getBytes());
+        if (id == null) {
+            return new ResponseEntity<>(null, HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+        }
+        return new ResponseEntity<>(new ImageUpload(id, ImageService.URL_PREFIX + id), HttpStatus.CREATED);
+    }
+
+    // range requests are answered by spring from the resource, reading only the chunks of the range
+    @GetMapping("/{id}")
+    public ResponseEntity<Resource> getImage(@PathVariable ObjectId id,
+                                             @RequestParam(defaultValue = ImageService.ORIGINAL) String variant,
+                                             HttpServletRequest request) {
+        if (!ImageService.isVariant(variant)) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+
+        Optional<StoredImage> image = imageService.getImage(id, variant);
+        if (image.isEmpty()) {
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        }
+
+        // the original stands in for a variant only until it is generated
+        CacheControl cacheControl = image.get().isFinalVariant()
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache();
+
+        // the browser already has this file
+        if (image.get().getEtag().equals(request.getHeader("If-None-Match"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(image.get().getEtag()).cacheControl(cacheControl).build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(image.get().getContentType()))
+                .eTag(image.get().getEtag())
+                .cacheControl(cacheControl)
+                .body(image.get().getResource());
+    }
+}
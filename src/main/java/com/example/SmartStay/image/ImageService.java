@@ -0,0 +1,253 @@
+package com.example.SmartStay.image;
+
+import com.example.SmartStay.util.MongoLease;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Product images in the GridFS bucket "images". An upload stores the original and queues the
+ * generation of the smaller variants, a scheduled pass on one node retries the originals still without them.
+ * Variants are JPEG files with metadata.original pointing to the original, unique per original and variant.
+ * An original that fails MAX_ATTEMPTS times (e.g. a format ImageIO cannot decode) is served without variants.
+ */
+@Service
+public class ImageService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageService.class);
+
+    public static final String BUCKET = "images";
+    public static final String URL_PREFIX = "/api/images/";
+
+    public static final String ORIGINAL = "original";
+    public static final String CARD = "card";
+    public static final String THUMB = "thumb";
+
+    // width and height of each variant, the image is scaled to cover it and cropped
+    private static final Map<String, Dimension> VARIANTS = Map.of(
+            CARD, new Dimension(480, 360),
+            THUMB, new Dimension(160, 120)
+    );
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "jpeg", "image/jpeg",
+            "png", "image/png",
+            "gif", "image/gif",
+            "bmp", "image/bmp"
+    );
+
+    // larger images are rejected before decoding them
+    private static final long MAX_PIXELS = 40_000_000;
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${smartstay.images.pipeline-interval:PT5M}")
+    private Duration pipelineInterval;
+
+    private GridFSBucket bucket;
+
+    // the node running the scheduled pass, kept while it keeps running it
+    private MongoLease lease;
+
+    private final ExecutorService pipeline = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-pipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        MongoDatabase database = mongoTemplate.getDb();
+        bucket = GridFSBuckets.create(database, BUCKET);
+        lease = new MongoLease(mongoTemplate, "image-pipeline", pipelineInterval.toMillis() * 2);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pipeline.shutdownNow();
+    }
+
+    // returns the id of the stored original, or null if the bytes are not a supported image
+    public String store(String filename, byte[] bytes) throws IOException {
+        String format;
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input);
+                format = reader.getFormatName().toLowerCase();
+                if (!CONTENT_TYPES.containsKey(format) || (long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    return null;
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        Document metadata = new Document("variant", ORIGINAL).append("contentType", CONTENT_TYPES.get(format));
+        ObjectId id = bucket.uploadFromStream(filename, new ByteArrayInputStream(bytes), new GridFSUploadOptions().metadata(metadata));
+        pipeline.execute(() -> createVariants(id));
+        return id.toHexString();
+    }
+
+    // the requested variant, or the original until the variant is generated
+    public Optional<StoredImage> getImage(ObjectId id, String variant) {
+        if (!variant.equals(ORIGINAL)) {
+            GridFSFile file = bucket.find(Filters.and(Filters.eq("metadata.original", id), Filters.eq("metadata.variant", variant))).first();
+            if (file != null) {
+                return Optional.of(toStoredImage(file, true));
+            }
+        }
+
+        GridFSFile original = bucket.find(Filters.and(Filters.eq("_id", id), Filters.eq("metadata.variant", ORIGINAL))).first();
+        if (original == null) {
+            return Optional.empty();
+        }
+        return Optional.of(toStoredImage(original, variant.equals(ORIGINAL)));
+    }
+
+    public static boolean isVariant(String variant) {
+        return variant.equals(ORIGINAL) || VARIANTS.containsKey(variant);
+    }
+
+    private StoredImage toStoredImage(GridFSFile file, boolean finalVariant) {
+        return new StoredImage(new GridFsFileResource(bucket, file), file.getMetadata().getString("contentType"), finalVariant);
+    }
+
+    // originals whose variants failed or were queued on a node that stopped
+    @Scheduled(initialDelayString = "${smartstay.images.pipeline-interval:PT5M}", fixedDelayString = "${smartstay.images.pipeline-interval:PT5M}")
+    public void processPending() {
+        if (!lease.acquire()) {
+            return;
+        }
+        // recent uploads are still queued on the node that received them
+        Date uploadedBefore = new Date(System.currentTimeMillis() - pipelineInterval.toMillis());
+        for (GridFSFile file : bucket.find(Filters.and(
+                Filters.eq("metadata.variant", ORIGINAL),
+                Filters.exists("metadata.variants", false),
+                Filters.not(Filters.gte("metadata.attempts", MAX_ATTEMPTS)),
+                Filters.lt("uploadDate", uploadedBefore)))) {
+            createVariants(file.getObjectId());
+        }
+    }
+
+    private void createVariants(ObjectId id) {
+        try {
+            BufferedImage original;
+            try (InputStream input = bucket.openDownloadStream(id)) {
+                original = ImageIO.read(input);
+            }
+            if (original == null) {
+                throw new IOException("No reader can decode the image");
+            }
+
+            for (Map.Entry<String, Dimension> variant : VARIANTS.entrySet()) {
+                // a previous pass can have stored some of them
+                if (bucket.find(Filters.and(Filters.eq("metadata.original", id), Filters.eq("metadata.variant", variant.getKey()))).first() != null) {
+                    continue;
+                }
+                storeVariant(id, variant.getKey(), toJpeg(cover(original, variant.getValue())));
+            }
+
+            mongoTemplate.getCollection(BUCKET + ".files").updateOne(Filters.eq("_id", id), Updates.set("metadata.variants", true));
+        } catch (Exception e) {
+            // retried by the scheduled pass until MAX_ATTEMPTS
+            Document file = mongoTemplate.getCollection(BUCKET + ".files").findOneAndUpdate(Filters.eq("_id", id),
+                    Updates.combine(Updates.inc("metadata.attempts", 1), Updates.set("metadata.error", String.valueOf(e.getMessage()))),
+                    new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+            int attempts = file == null ? MAX_ATTEMPTS : file.get("metadata", Document.class).getInteger("attempts", MAX_ATTEMPTS);
+            if (attempts >= MAX_ATTEMPTS) {
+                LOGGER.error("Could not create the variants of image " + id + ", the original is served instead", e);
+            } else {
+                LOGGER.warn("Could not create the variants of image " + id + " (attempt " + attempts + "): " + e.getMessage());
+            }
+        }
+    }
+
+    private void storeVariant(ObjectId id, String variant, byte[] bytes) {
+        Document metadata = new Document("variant", variant)
+                .append("original", id)
+                .append("contentType", "image/jpeg");
+        ObjectId fileId = new ObjectId();
+        try {
+            bucket.uploadFromStream(new BsonObjectId(fileId), id.toHexString() + "-" + variant + ".jpg", new ByteArrayInputStream(bytes),
+                    new GridFSUploadOptions().metadata(metadata));
+        } catch (MongoWriteException e) {
+            if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+                throw e;
+            }
+            // stored by another pass at the same time, the chunks were written before the file was rejected
+            mongoTemplate.getCollection(BUCKET + ".chunks").deleteMany(Filters.eq("files_id", fileId));
+        }
+    }
+
+    // scales the image to cover the size and crops the center
+    static BufferedImage cover(BufferedImage image, Dimension size) {
+        double scale = Math.max((double) size.width / image.getWidth(), (double) size.height / image.getHeight());
+        int width = (int) Math.ceil(image.getWidth() * scale);
+        int height = (int) Math.ceil(image.getHeight() * scale);
+
+        BufferedImage variant = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = variant.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // transparent pixels of png and gif on white
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, size.width, size.height);
+            graphics.drawImage(image, (size.width - width) / 2, (size.height - height) / 2, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return variant;
+    }
+
+    private static byte[] toJpeg(BufferedImage image) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", output);
+        return output.toByteArray();
+    }
+}
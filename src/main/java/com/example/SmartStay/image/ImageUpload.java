@@ -0,0 +1,15 @@
+package com.example.SmartStay.image;
+
+import lombok.Getter;
+
+@Getter
+public class ImageUpload {
+    private String id;
+    // to put in Product.images
+    private String url;
+
+    public ImageUpload(String id, String url) {
+        this.id = id;
+        this.url = url;
+    }
+}
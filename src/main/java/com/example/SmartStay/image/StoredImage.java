@@ -0,0 +1,22 @@
+package com.example.SmartStay.image;
+
+import lombok.Getter;
+
+@Getter
+public class StoredImage {
+    private GridFsFileResource resource;
+    private String contentType;
+    // false while the requested variant is not generated and the original is served instead
+    private boolean finalVariant;
+
+    public StoredImage(GridFsFileResource resource, String contentType, boolean finalVariant) {
+        this.resource = resource;
+        this.contentType = contentType;
+        this.finalVariant = finalVariant;
+    }
+
+    // files never change, the id identifies the content
+    public String getEtag() {
+        return "\"" + resource.getGridFSFile().getObjectId().toHexString() + "\"";
+    }
+}
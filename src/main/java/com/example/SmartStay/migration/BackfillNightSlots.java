@@ -0,0 +1,76 @@
+package com.example.SmartStay.migration;
+
+import com.example.SmartStay.reservation.AvailabilityService;
+import com.example.SmartStay.reservation.NightSlot;
+import com.example.SmartStay.reservation.Reservation;
+import com.mongodb.bulk.BulkWriteError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// night slots of the reservations made before bookings claimed them
+@Component
+public class BackfillNightSlots implements Migration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackfillNightSlots.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @Override
+    public String getDescription() {
+        return "create the night slots of existing reservations";
+    }
+
+    @Override
+    public void apply(MongoTemplate mongoTemplate) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NightSlot.class);
+        int pending = 0;
+        try (Stream<Reservation> stream = mongoTemplate.stream(new Query(), Reservation.class)) {
+            Iterator<Reservation> reservations = stream.iterator();
+            while (reservations.hasNext()) {
+                Reservation reservation = reservations.next();
+                long end = AvailabilityService.toEpochDay(reservation.getEnd());
+                for (long day = AvailabilityService.toEpochDay(reservation.getStart()); day < end; day++) {
+                    bulk.insert(new NightSlot(reservation.getProductId(), day, reservation.getId()));
+                    if (++pending == BATCH_SIZE) {
+                        execute(bulk);
+                        bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NightSlot.class);
+                        pending = 0;
+                    }
+                }
+            }
+        }
+        if (pending > 0) {
+            execute(bulk);
+        }
+    }
+
+    // overlapping reservations booked before the guard existed keep the slot of the first one,
+    // slots inserted by an interrupted run are duplicates too
+    private void execute(BulkOperations bulk) {
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+            }
+            LOGGER.warn("Some nights are booked by more than one reservation: " + e.getErrors().size() + " slots skipped");
+        }
+    }
+}
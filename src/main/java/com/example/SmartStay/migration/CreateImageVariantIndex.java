@@ -0,0 +1,30 @@
+package com.example.SmartStay.migration;
+
+import com.example.SmartStay.image.ImageService;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.stereotype.Component;
+
+// variants are looked up by original and variant name, the GridFS files are not an entity
+@Component
+public class CreateImageVariantIndex implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 4;
+    }
+
+    @Override
+    public String getDescription() {
+        return "index image variants by original";
+    }
+
+    @Override
+    public void apply(MongoTemplate mongoTemplate) {
+        mongoTemplate.indexOps(ImageService.BUCKET + ".files").ensureIndex(
+                new CompoundIndexDefinition(new Document("metadata.original", 1).append("metadata.variant", 1))
+                        .named("original_variant_idx")
+                        .background());
+    }
+}
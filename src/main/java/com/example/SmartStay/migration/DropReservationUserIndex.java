@@ -0,0 +1,31 @@
+package com.example.SmartStay.migration;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+// the reservation userId index is a prefix of user_start_idx in Reservation
+@Component
+public class DropReservationUserIndex implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 3;
+    }
+
+    @Override
+    public String getDescription() {
+        return "drop the reservation userId index replaced by user_start_idx";
+    }
+
+    @Override
+    public void apply(MongoTemplate mongoTemplate) {
+        IndexOperations indexOperations = mongoTemplate.indexOps("reservations");
+        for (IndexInfo index : indexOperations.getIndexInfo()) {
+            if (index.getName().equals("userId")) {
+                indexOperations.dropIndex(index.getName());
+            }
+        }
+    }
+}
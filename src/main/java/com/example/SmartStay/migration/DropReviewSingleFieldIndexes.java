@@ -0,0 +1,31 @@
+package com.example.SmartStay.migration;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+// the review userId and productId indexes are prefixes of the compound indexes in Review
+@Component
+public class DropReviewSingleFieldIndexes implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public String getDescription() {
+        return "drop single field review indexes replaced by compound indexes";
+    }
+
+    @Override
+    public void apply(MongoTemplate mongoTemplate) {
+        IndexOperations indexOperations = mongoTemplate.indexOps("reviews");
+        for (IndexInfo index : indexOperations.getIndexInfo()) {
+            if (index.getName().equals("userId") || index.getName().equals("productId")) {
+                indexOperations.dropIndex(index.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.SmartStay.migration;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Indexes declared with @Indexed, @CompoundIndex and @GeoSpatialIndexed on the documents.
+ * The annotations stay the source of truth, they are only built by the migration command.
+ */
+@Component
+public class EntityIndexes {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EntityIndexes.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mappingContext;
+
+    @Autowired
+    public EntityIndexes(MongoTemplate mongoTemplate, MongoMappingContext mappingContext) {
+        this.mongoTemplate = mongoTemplate;
+        this.mappingContext = mappingContext;
+    }
+
+    // builds the missing indexes in the background, logging the progress
+    public void ensureIndexes() {
+        List<EntityIndex> missing = getMissingIndexes();
+        int built = 0;
+        for (EntityIndex index : missing) {
+            built++;
+            LOGGER.info("Building index [" + built + "/" + missing.size() + "] " + index);
+            long start = System.currentTimeMillis();
+            mongoTemplate.indexOps(index.collection).ensureIndex(new BackgroundIndex(index.definition));
+            LOGGER.info("Built index " + index + " in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    // only reads the existing indexes
+    public List<EntityIndex> getMissingIndexes() {
+        IndexResolver indexResolver = IndexResolver.create(mappingContext);
+        List<EntityIndex> missing = new ArrayList<>();
+
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+                continue;
+            }
+
+            List<Document> existing = new ArrayList<>();
+            for (Document index : mongoTemplate.getCollection(entity.getCollection()).listIndexes()) {
+                existing.add(index);
+            }
+
+            for (IndexDefinition definition : indexResolver.resolveIndexFor(entity.getTypeInformation())) {
+                if (!exists(definition, existing)) {
+                    missing.add(new EntityIndex(entity.getCollection(), definition));
+                }
+            }
+        }
+        return missing;
+    }
+
+    private static boolean exists(IndexDefinition definition, List<Document> existing) {
+        String name = definition.getIndexOptions().getString("name");
+        for (Document index : existing) {
+            if (index.get("key", Document.class).equals(definition.getIndexKeys())
+                    || (name != null && name.equals(index.getString("name")))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static class EntityIndex {
+        private final String collection;
+        private final IndexDefinition definition;
+
+        EntityIndex(String collection, IndexDefinition definition) {
+            this.collection = collection;
+            this.definition = definition;
+        }
+
+        public String toString() {
+            return collection + " " + definition.getIndexKeys().toJson();
+        }
+    }
+
+    // same index, built without blocking the collection on servers that still honor the option
+    private static class BackgroundIndex implements IndexDefinition {
+        private final IndexDefinition definition;
+
+        BackgroundIndex(IndexDefinition definition) {
+            this.definition = definition;
+        }
+
+        @Override
+        public Document getIndexKeys() {
+            return definition.getIndexKeys();
+        }
+
+        @Override
+        public Document getIndexOptions() {
+            return new Document(definition.getIndexOptions()).append("background", true);
+        }
+    }
+}
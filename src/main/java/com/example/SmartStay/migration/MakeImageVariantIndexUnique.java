@@ -0,0 +1,63 @@
+package com.example.SmartStay.migration;
+
+import com.example.SmartStay.image.ImageService;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// one file per original and variant, the upload node and the scheduled pass can both generate it
+@Component
+public class MakeImageVariantIndexUnique implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 5;
+    }
+
+    @Override
+    public String getDescription() {
+        return "remove duplicated image variants and make the variant index unique";
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void apply(MongoTemplate mongoTemplate) {
+        String files = ImageService.BUCKET + ".files";
+        GridFSBucket bucket = GridFSBuckets.create(mongoTemplate.getDb(), ImageService.BUCKET);
+
+        // the first file of each variant is kept, the rest with their chunks are deleted
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("metadata.original", new Document("$exists", true))),
+                new Document("$sort", new Document("_id", 1)),
+                new Document("$group", new Document("_id", new Document("original", "$metadata.original").append("variant", "$metadata.variant"))
+                        .append("ids", new Document("$push", "$_id"))),
+                new Document("$match", new Document("ids.1", new Document("$exists", true))));
+        for (Document duplicated : mongoTemplate.getCollection(files).aggregate(pipeline).allowDiskUse(true)) {
+            List<ObjectId> ids = (List<ObjectId>) duplicated.get("ids");
+            ids.subList(1, ids.size()).forEach(bucket::delete);
+        }
+
+        IndexOperations indexOperations = mongoTemplate.indexOps(files);
+        for (IndexInfo index : indexOperations.getIndexInfo()) {
+            if (index.getName().equals("original_variant_idx")) {
+                indexOperations.dropIndex(index.getName());
+            }
+        }
+        // originals have no metadata.original
+        indexOperations.ensureIndex(
+                new CompoundIndexDefinition(new Document("metadata.original", 1).append("metadata.variant", 1))
+                        .named("original_variant_unique_idx")
+                        .unique()
+                        .partial(PartialIndexFilter.of(Criteria.where("metadata.original").exists(true))));
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.SmartStay.migration;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * A schema change applied once, in version order, by {@link MigrationRunner}.
+ * Applied versions are recorded in the schema_migrations collection.
+ */
+public interface Migration {
+
+    int getVersion();
+
+    String getDescription();
+
+    void apply(MongoTemplate mongoTemplate);
+}
@@ -0,0 +1,152 @@
+package com.example.SmartStay.migration;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index and schema migrations, replacing spring.data.mongodb.auto-index-creation.
+ * smartstay.migrations.mode:
+ * - verify (default): only checks that every migration and entity index is applied, and logs what is missing.
+ * - apply: builds the missing entity indexes and runs the pending migrations, holding a lock
+ *   so only one instance does it. With smartstay.migrations.exit=true the application stops afterwards,
+ *   to run it as a dedicated command before a rolling restart.
+ * - off: nothing.
+ */
+@Component
+public class MigrationRunner implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MigrationRunner.class);
+
+    private static final String MIGRATIONS_COLLECTION = "schema_migrations";
+    private static final String LOCK_COLLECTION = "schema_migrations_lock";
+    private static final String LOCK_ID = "lock";
+    private static final long LOCK_TIMEOUT = TimeUnit.HOURS.toMillis(1);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private EntityIndexes entityIndexes;
+
+    @Autowired
+    private List<Migration> migrations;
+
+    @Autowired
+    private ConfigurableApplicationContext applicationContext;
+
+    @Value("${smartstay.migrations.mode:verify}")
+    private String mode;
+
+    @Value("${smartstay.migrations.exit:false}")
+    private boolean exit;
+
+    private final String owner = new ObjectId().toHexString();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        switch (mode) {
+            case "apply" -> apply();
+            case "verify" -> verify();
+            case "off" -> LOGGER.info("Migrations are off");
+            default -> LOGGER.warn("Unknown smartstay.migrations.mode: " + mode);
+        }
+
+        if (exit) {
+            System.exit(SpringApplication.exit(applicationContext));
+        }
+    }
+
+    private void verify() {
+        List<Migration> pending = getPendingMigrations();
+        List<EntityIndexes.EntityIndex> missing = entityIndexes.getMissingIndexes();
+        if (pending.isEmpty() && missing.isEmpty()) {
+            LOGGER.info("Schema is up to date");
+            return;
+        }
+
+        for (Migration migration : pending) {
+            LOGGER.warn("Pending migration " + migration.getVersion() + ": " + migration.getDescription());
+        }
+        for (EntityIndexes.EntityIndex index : missing) {
+            LOGGER.warn("Missing index " + index);
+        }
+        LOGGER.warn("Run with smartstay.migrations.mode=apply to update the schema");
+    }
+
+    private void apply() {
+        if (!acquireLock()) {
+            LOGGER.info("Migrations are being applied by another instance");
+            return;
+        }
+
+        try {
+            // indexes first, migrations may rely on them
+            entityIndexes.ensureIndexes();
+
+            List<Migration> pending = getPendingMigrations();
+            int applied = 0;
+            for (Migration migration : pending) {
+                applied++;
+                LOGGER.info("Applying migration [" + applied + "/" + pending.size() + "] " + migration.getVersion() + ": " + migration.getDescription());
+                long start = System.currentTimeMillis();
+                migration.apply(mongoTemplate);
+                long duration = System.currentTimeMillis() - start;
+
+                mongoTemplate.insert(new Document("_id", migration.getVersion())
+                        .append("description", migration.getDescription())
+                        .append("appliedAt", new Date())
+                        .append("duration", duration), MIGRATIONS_COLLECTION);
+                LOGGER.info("Applied migration " + migration.getVersion() + " in " + duration + " ms");
+            }
+            LOGGER.info("Schema is up to date");
+        } finally {
+            releaseLock();
+        }
+    }
+
+    private List<Migration> getPendingMigrations() {
+        Set<Integer> applied = new HashSet<>();
+        for (Document document : mongoTemplate.getCollection(MIGRATIONS_COLLECTION).find()) {
+            applied.add(document.getInteger("_id"));
+        }
+
+        return migrations.stream()
+                .filter(migration -> !applied.contains(migration.getVersion()))
+                .sorted(Comparator.comparingInt(Migration::getVersion))
+                .toList();
+    }
+
+    private boolean acquireLock() {
+        long now = System.currentTimeMillis();
+        // only matches an expired lock, if the lock is held the upsert fails with a duplicate key
+        Query query = Query.query(Criteria.where("_id").is(LOCK_ID).and("expiresAt").lt(now));
+        Update update = new Update().set("owner", owner).set("expiresAt", now + LOCK_TIMEOUT);
+        try {
+            mongoTemplate.upsert(query, update, LOCK_COLLECTION);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private void releaseLock() {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(LOCK_ID).and("owner").is(owner)), LOCK_COLLECTION);
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.SmartStay.product;
 
 import lombok.Getter;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
 
 import java.util.Objects;
 
@@ -10,6 +13,11 @@ public class Address {
     private String country;
     private String city;
 
+    // GeoJSON point, coordinates are [longitude, latitude]
+    // not part of equals, addresses are grouped by country and city
+    @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
+    private GeoJsonPoint location;
+
     public String toString() {
         return "Address(country=" + this.country + ",city=" + this.city + ")";
     }
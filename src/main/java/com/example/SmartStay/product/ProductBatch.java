@@ -0,0 +1,20 @@
+package com.example.SmartStay.product;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+public class ProductBatch<T> {
+    // products that changed or were not known by the client
+    private List<T> products = new ArrayList<>();
+    // product id -> etag of every product found, to send back in the next request
+    private Map<String, String> etags = new HashMap<>();
+    // ids sent with the current etag, not included in products
+    private List<String> unchanged = new ArrayList<>();
+    // ids of products that do not exist (e.g. deleted)
+    private List<String> missing = new ArrayList<>();
+}
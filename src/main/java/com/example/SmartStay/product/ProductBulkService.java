@@ -0,0 +1,177 @@
+package com.example.SmartStay.product;
+
+import com.example.SmartStay.category.Category;
+import com.example.SmartStay.category.CategoryService;
+import com.example.SmartStay.websocket.WebSocketService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Stream;
+
+@Service
+public class ProductBulkService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductBulkService.class);
+
+    // products inserted with one bulk write
+    private static final int BATCH_SIZE = 500;
+
+    // duplicate key error (unique product name)
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private WebSocketService webSocketService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // reads one CreateProductRequest per line and inserts them in unordered batches
+    public ProductImportResult importProducts(InputStream input) throws IOException {
+        ProductImportResult result = new ProductImportResult();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<CreateProductRequest> batch = new ArrayList<>(BATCH_SIZE);
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+
+            CreateProductRequest request;
+            try {
+                request = objectMapper.readValue(line, CreateProductRequest.class);
+            } catch (JsonProcessingException e) {
+                result.addInvalid(1);
+                continue;
+            }
+            if (request.getName() == null || request.getName().isBlank()) {
+                result.addInvalid(1);
+                continue;
+            }
+
+            batch.add(request);
+            if (batch.size() == BATCH_SIZE) {
+                insertBatch(batch, result);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            insertBatch(batch, result);
+        }
+        return result;
+    }
+
+    private void insertBatch(List<CreateProductRequest> requests, ProductImportResult result) {
+        List<Product> products = new ArrayList<>(requests.size());
+        for (CreateProductRequest request : requests) {
+            Product product = new Product(
+                    request.getName(),
+                    request.getDescription(),
+                    request.getImages(),
+                    request.getFeatures(),
+                    request.getAddress(),
+                    request.getMapUrl(),
+                    request.getPolicies(),
+                    request.getMapEmbed()
+            );
+            // ids are set here, so they are known after the bulk insert
+            product.setId(new ObjectId().toHexString());
+            products.add(product);
+        }
+
+        // unordered, a duplicated name does not stop the rest of the batch
+        Set<Integer> failed = new HashSet<>();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class).insert(products).execute();
+        } catch (BulkOperationException e) {
+            int duplicated = 0;
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(error.getIndex());
+                if (error.getCode() == DUPLICATE_KEY) {
+                    duplicated++;
+                } else {
+                    LOGGER.warn("Product import failed for " + products.get(error.getIndex()).getName() + ": " + error.getMessage());
+                }
+            }
+            result.addDuplicated(duplicated);
+            result.addInvalid(failed.size() - duplicated);
+        }
+
+        List<Object> insertedIds = new ArrayList<>();
+        Map<String, List<String>> productsByCategory = new HashMap<>();
+        for (int i = 0; i < products.size(); i++) {
+            if (failed.contains(i)) {
+                continue;
+            }
+            String productId = products.get(i).getId();
+            insertedIds.add(productId);
+
+            String categoryId = requests.get(i).getCategoryId();
+            if (categoryId != null && ObjectId.isValid(categoryId)) {
+                productsByCategory.computeIfAbsent(categoryId, id -> new ArrayList<>()).add(productId);
+            }
+        }
+        result.addInserted(insertedIds.size());
+
+        // one update per category in the batch
+        List<Object> updatedCategories = new ArrayList<>();
+        productsByCategory.forEach((categoryId, productIds) -> {
+            if (categoryService.addProductsToCategory(new ObjectId(categoryId), productIds)) {
+                updatedCategories.add(categoryId);
+            }
+        });
+
+        // one websocket message per batch
+        if (!insertedIds.isEmpty()) {
+            webSocketService.sendMessage("updateProduct", insertedIds);
+        }
+        if (!updatedCategories.isEmpty()) {
+            webSocketService.sendMessage("updateCategory", updatedCategories);
+        }
+    }
+
+    // writes every product as one json line, read from a cursor so the catalog is never fully loaded
+    public void exportProducts(OutputStream output) throws IOException {
+        Map<String, String> categoryByProduct = new HashMap<>();
+        for (Category category : categoryService.getAllCategories()) {
+            for (String productId : category.getProducts()) {
+                categoryByProduct.put(productId, category.getId());
+            }
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        try (Stream<Product> products = mongoTemplate.stream(new Query(), Product.class)) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                Product product = iterator.next();
+                ObjectNode node = objectMapper.valueToTree(product);
+                // same format as the import
+                node.put("categoryId", categoryByProduct.getOrDefault(product.getId(), ""));
+                writer.write(objectMapper.writeValueAsString(node));
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.SmartStay.product;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// fields shown in the product cards of the list pages, the rest is loaded with /get/{id}
+@Getter
+@NoArgsConstructor
+public class ProductCard {
+    private String id;
+    private String name;
+    // first characters of the description
+    private String description;
+    // only the first image
+    private List<String> images;
+    private Address address;
+    private double rating;
+    private int ratingCount;
+
+    public void setRating(double rating, int ratingCount) {
+        this.rating = rating;
+        this.ratingCount = ratingCount;
+    }
+}
@@ -1,29 +1,46 @@
 package com.example.SmartStay.product;
 
+import com.example.SmartStay.analytics.AnalyticsService;
 import com.example.SmartStay.category.Category;
 import com.example.SmartStay.category.CategoryService;
 import com.example.SmartStay.email.EmailService;
+import com.example.SmartStay.recommend.SimilarStayService;
+import com.example.SmartStay.reservation.AvailabilityCalendar;
+import com.example.SmartStay.reservation.AvailabilityService;
 import com.example.SmartStay.reservation.Reservation;
 import com.example.SmartStay.reservation.ReservationProjection;
 import com.example.SmartStay.reservation.ReservationRequest;
 import com.example.SmartStay.reservation.ReservationService;
+import com.example.SmartStay.review.RatingHistogram;
+import com.example.SmartStay.review.RatingSummary;
 import com.example.SmartStay.review.Review;
-import com.example.SmartStay.review.ReviewProjection;
+import com.example.SmartStay.review.ReviewPage;
 import com.example.SmartStay.review.ReviewRequest;
 import com.example.SmartStay.review.ReviewService;
+import com.example.SmartStay.search.ProductSearchIndex;
+import com.example.SmartStay.trending.TrendingService;
 import com.example.SmartStay.user.User;
 import com.example.SmartStay.user.UserService;
+import com.example.SmartStay.util.JsonFragment;
 import com.example.SmartStay.util.JwtUtil;
+import com.example.SmartStay.util.TextUtil;
 import com.example.SmartStay.util.UserUtil;
 import com.example.SmartStay.websocket.WebSocketService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.geo.GeoResults;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -34,6 +51,14 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/products")
 public class ProductController {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductController.class);
+
+    // products of a /getMany request
+    private static final int MAX_BATCH_SIZE = 100;
+
+    // half of the earth circumference, no product is farther than this
+    private static final double MAX_RADIUS_KM = 20038;
+
     @Autowired
     private ProductService productService;
 
@@ -58,9 +83,33 @@ public class ProductController {
     @Autowired
     private ReservationService reservationService;
 
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private SearchCache searchCache;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private SimilarStayService similarStayService;
+
+    @Autowired
+    private TrendingService trendingService;
+
     @Autowired
     private ReviewService reviewService;
 
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private ProductBulkService productBulkService;
+
+    @Autowired
+    private ProductJsonCache productJsonCache;
+
     @GetMapping
     public ResponseEntity<List<Product>> allProducts(@RequestHeader("Authorization") String token) {
         // check if is admin
@@ -71,18 +120,19 @@ public class ProductController {
     }
 
     @GetMapping("/home")
-    public ResponseEntity<List<ProductRatingDTO>> homeProducts() {
+    public ResponseEntity<List<JsonFragment>> homeProducts() {
         return new ResponseEntity<>(getRandomProducts(), HttpStatus.OK);
     }
 
-    private List<ProductRatingDTO> getRandomProducts() {
-        // all products
-        List<Product> products = productService.getAllProducts();
-        // shuffle products
-        Collections.shuffle(products);
-        int toIndex = Math.min(products.size(), 100);
+    // random cards with ratings, as json
+    private List<JsonFragment> getRandomProducts() {
+        long version = productJsonCache.getVersion();
+        return productJsonCache.toJson(addRatings(getRandomCards()), version);
+    }
 
-        return transformProducts(products.subList(0, toIndex));
+    private List<ProductCard> getRandomCards() {
+        // 100 random products, sampled by mongo
+        return productService.getRandomCards(100);
     }
 
     @GetMapping("/addresses")
@@ -91,78 +141,155 @@ public class ProductController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<ProductRatingDTO>> searchProducts(@RequestParam String query) {
+    public ResponseEntity<List<JsonFragment>> searchProducts(@RequestParam String query,
+                                                            @RequestParam(required = false) Long start,
+                                                            @RequestParam(required = false) Long end) {
+        // results with ratings of the same normalized query are reused until a change touches them
+        List<ProductCard> products = searchCache.get(query);
+        Map<String, JsonFragment> cards;
+        if (products != null && !products.isEmpty()) {
+            // cards of a cached result can be older than the json cache, the json is looked up by id
+            cards = productJsonCache.getCards(products.stream().map(ProductCard::getId).toList());
+        } else {
+            // freshly loaded cards are serialized as they are, before the json cache version
+            long jsonVersion = productJsonCache.getVersion();
+            if (products == null) {
+                long version = searchCache.getVersion();
+                products = addRatings(findProducts(query));
+                searchCache.put(query, products, version);
+            }
+
+            // no results, show random products instead
+            if (products.isEmpty()) {
+                products = addRatings(getRandomCards());
+            }
+
+            List<JsonFragment> json = productJsonCache.toJson(products, jsonVersion);
+            cards = new LinkedHashMap<>();
+            for (int i = 0; i < products.size(); i++) {
+                cards.put(products.get(i).getId(), json.get(i));
+            }
+        }
+        return filterAvailable(cards, products, start, end);
+    }
+
+    // if dates are sent, exclude products already booked in that range
+    private ResponseEntity<List<JsonFragment>> filterAvailable(Map<String, JsonFragment> cards, List<ProductCard> products, Long start, Long end) {
+        if (start == null && end == null) {
+            return new ResponseEntity<>(new ArrayList<>(cards.values()), HttpStatus.OK);
+        }
+        if (start == null || end == null || start >= end) {
+            return new ResponseEntity<>(Collections.emptyList(), HttpStatus.BAD_REQUEST);
+        }
+        Set<String> available = availabilityService.filterAvailable(products, ProductCard::getId,
+                        setStartOrEndTime(start, true), setStartOrEndTime(end, false))
+                .stream().map(ProductCard::getId).collect(Collectors.toSet());
+        cards.keySet().retainAll(available);
+        return new ResponseEntity<>(new ArrayList<>(cards.values()), HttpStatus.OK);
+    }
+
+    @GetMapping("/search/stats")
+    public ResponseEntity<SearchCacheStats> searchCacheStats(@RequestHeader("Authorization") String token) {
+        if (!userService.isAdmin(token)) {
+            return new ResponseEntity<>(null, HttpStatus.UNAUTHORIZED);
+        }
+        return new ResponseEntity<>(searchCache.getStats(), HttpStatus.OK);
+    }
+
+    // empty if nothing matches the query
+    private List<ProductCard> findProducts(String query) {
         // check if query has comma, that means that is a country and city
         if (query.contains(",")) {
             String[] queries = query.split(",");
             if (queries.length == 2) {
-                List<Product> products = productService.getProductsByCountryAndCity(queries[0].trim(), queries[1].trim());
+                List<ProductCard> products = productService.getCardsByCountryAndCity(queries[0].trim(), queries[1].trim());
                 if (!products.isEmpty()) {
-                    return new ResponseEntity<>(transformProducts(products), HttpStatus.OK);
+                    return products;
                 }
             }
         }
 
-        query = cleanSearchString(query);
-
-        // limit to 3 queries
-        String[] queries = Arrays.stream(query.split(" ")).limit(3).toArray(String[]::new);
+        // limit to 3 queries, the same words the search cache key is made of
+        String[] queries = SearchCache.tokens(query).toArray(String[]::new);
 
-        if (query.isBlank() || queries.length == 0) {
-            return new ResponseEntity<>(getRandomProducts(), HttpStatus.OK);
+        if (queries.length == 0) {
+            return Collections.emptyList();
         }
 
         // if query only has one word, check if is a category
         if (queries.length == 1) {
-            Category category = categoryService.getCategoryByName(queries[0]).orElse(null);
+            Category category = categoryService.getCategoryByFoldedName(queries[0]).orElse(null);
             if (category != null) {
-                List<Product> products = Collections.emptyList();
-
-                for (String productId : category.getProducts()) {
-                    Optional<Product> product = productService.getProductById(new ObjectId(productId));
-                    if (product.isPresent()) {
-                        if (products.isEmpty()) {
-                            products = new ArrayList<>();
-                        }
-                        products.add(product.get());
-                    }
-                }
-
-                if (products.isEmpty()) {
-                    return new ResponseEntity<>(getRandomProducts(), HttpStatus.OK);
-                }
-
-                return new ResponseEntity<>(transformProducts(products), HttpStatus.OK);
+                return productService.getCardsByIds(category.getProducts());
             }
         }
 
-        // add the first query to the rest of the queries if there are less than 3
-        while (queries.length < 3) {
-            queries = Arrays.copyOf(queries, queries.length + 1);
-            queries[queries.length - 1] = queries[0];
+        // words of names, cities and countries, accents and typos allowed
+        return productService.getCardsByIds(productSearchIndex.search(String.join(" ", queries)));
+    }
+
+    @GetMapping("/near")
+    public ResponseEntity<List<ProductDistanceDTO>> nearProducts(@RequestParam double lat, @RequestParam double lng,
+                                                                 @RequestParam(defaultValue = "20") double radius,
+                                                                 @RequestParam(required = false) String categoryId,
+                                                                 @RequestParam(defaultValue = "0") int page,
+                                                                 @RequestParam(defaultValue = "20") int size) {
+        if (!isValidPoint(lat, lng) || radius <= 0 || radius > MAX_RADIUS_KM || page < 0 || size < 1 || size > 100) {
+            return new ResponseEntity<>(Collections.emptyList(), HttpStatus.BAD_REQUEST);
         }
-        List<Product> products = productService.getProductsByCountryAndCityQuery(queries[0], queries[1], queries[2]);
+        return findProductsNear(lat, lng, radius, categoryId, PageRequest.of(page, size));
+    }
 
-        if (products.isEmpty()) {
-            return new ResponseEntity<>(getRandomProducts(), HttpStatus.OK);
+    @GetMapping("/nearest")
+    public ResponseEntity<List<ProductDistanceDTO>> nearestProducts(@RequestParam double lat, @RequestParam double lng,
+                                                                    @RequestParam(defaultValue = "10") int k,
+                                                                    @RequestParam(required = false) String categoryId) {
+        if (!isValidPoint(lat, lng) || k < 1 || k > 100) {
+            return new ResponseEntity<>(Collections.emptyList(), HttpStatus.BAD_REQUEST);
         }
+        return findProductsNear(lat, lng, MAX_RADIUS_KM, categoryId, PageRequest.of(0, k));
+    }
 
+    private ResponseEntity<List<ProductDistanceDTO>> findProductsNear(double lat, double lng, double radius, String categoryId, Pageable pageable) {
+        List<ObjectId> ids = null;
 
-        return new ResponseEntity<>(transformProducts(products), HttpStatus.OK);
-    }
+        // limit to the products of the category
+        if (categoryId != null && !categoryId.isBlank()) {
+            if (!ObjectId.isValid(categoryId)) {
+                return new ResponseEntity<>(Collections.emptyList(), HttpStatus.BAD_REQUEST);
+            }
+            Category category = categoryService.getCategoryById(new ObjectId(categoryId)).orElse(null);
+            if (category == null) {
+                return new ResponseEntity<>(Collections.emptyList(), HttpStatus.NOT_FOUND);
+            }
+            ids = category.getProducts().stream().map(ObjectId::new).toList();
+        }
 
-    private List<ProductRatingDTO> transformProducts(List<Product> products) {
-        return products.stream()
-                .map(product -> {
-                    List<ReviewProjection> reviews = reviewService.getReviewsByProductIdProjection(product.getId());
-                    double rating = reviews.stream().mapToDouble(ReviewProjection::getRating).average().orElse(0);
-                    return new ProductRatingDTO(product, rating, reviews.size());
+        GeoResults<Product> results = productService.getProductsNear(lat, lng, radius, ids, pageable);
+        Map<String, RatingSummary> ratings = reviewService.getRatingSummaries(
+                results.getContent().stream().map(result -> result.getContent().getId()).toList());
+        List<ProductDistanceDTO> products = results.getContent().stream()
+                .map(result -> {
+                    Product product = result.getContent();
+                    RatingSummary rating = ratings.get(product.getId());
+                    return rating == null
+                            ? new ProductDistanceDTO(product, 0, 0, result.getDistance().getValue())
+                            : new ProductDistanceDTO(product, rating.getRating(), rating.getCount(), result.getDistance().getValue());
                 })
                 .toList();
+        return new ResponseEntity<>(products, HttpStatus.OK);
+    }
+
+    private static boolean isValidPoint(double lat, double lng) {
+        return lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180;
+    }
+
+    private List<ProductCard> addRatings(List<ProductCard> products) {
+        return reviewService.addRatings(products);
     }
 
     @GetMapping("/wishlist")
-    public ResponseEntity<List<ProductRatingDTO>> getWishlist(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<List<JsonFragment>> getWishlist(@RequestHeader("Authorization") String token) {
         User user = userUtil.getValidUser(token);
         if (user == null) {
             return new ResponseEntity<>(Collections.emptyList(), HttpStatus.UNAUTHORIZED);
@@ -173,27 +300,89 @@ public class ProductController {
             return new ResponseEntity<>(Collections.emptyList(), HttpStatus.OK);
         }
 
-        List<Product> products = new ArrayList<>();
-        for (String productId : productIds) {
-            Optional<Product> product = productService.getProductById(new ObjectId(productId));
-            product.ifPresent(products::add);
-        }
+        return new ResponseEntity<>(getCards(productIds), HttpStatus.OK);
+    }
 
-        return new ResponseEntity<>(transformProducts(products), HttpStatus.OK);
+    // card json with ratings in the same order as the ids
+    private List<JsonFragment> getCards(List<String> ids) {
+        return new ArrayList<>(productJsonCache.getCards(ids).values());
     }
 
+    // letters of any language and digits, without accents and in lower case
     public static String cleanSearchString(String search) {
-        return search.replaceAll("[^a-zA-Z\\s]", "");
+        return TextUtil.fold(search);
     }
 
     @GetMapping("/get/{id}")
-    public ResponseEntity<Optional<Product>> getProductById(@PathVariable ObjectId id) {
+    public ResponseEntity<JsonFragment> getProductById(@PathVariable ObjectId id) {
         // return 404 if product not found
-        Optional<Product> product = productService.getProductById(id);
+        Optional<JsonFragment> product = productJsonCache.getDetail(id.toHexString());
         if (product.isEmpty()) {
-            return new ResponseEntity<>(product, HttpStatus.NOT_FOUND);
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(product, HttpStatus.OK);
+        trendingService.recordView(id.toHexString());
+        return new ResponseEntity<>(product.get(), HttpStatus.OK);
+    }
+
+    // most booked, wishlisted, reviewed and viewed products of the last hours
+    @GetMapping("/trending")
+    public ResponseEntity<List<JsonFragment>> getTrendingProducts(@RequestParam(defaultValue = "10") int k) {
+        if (k < 1 || k > TrendingService.TOP) {
+            return new ResponseEntity<>(Collections.emptyList(), HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(getCards(trendingService.getTop(k)), HttpStatus.OK);
+    }
+
+    // products wishlisted or booked by the same users
+    @GetMapping("/similar/{id}")
+    public ResponseEntity<List<JsonFragment>> getSimilarProducts(@PathVariable ObjectId id, @RequestParam(defaultValue = "10") int k) {
+        if (k < 1 || k > SimilarStayService.TOP) {
+            return new ResponseEntity<>(Collections.emptyList(), HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(getCards(similarStayService.getSimilar(id.toString(), k)), HttpStatus.OK);
+    }
+
+    @GetMapping("/getMany")
+    public ResponseEntity<ProductBatch<JsonFragment>> getProductsByIds(@RequestParam List<String> ids,
+                                                                 @RequestParam(required = false) List<String> etags,
+                                                                 @RequestParam(defaultValue = "false") boolean card) {
+        // etags are optional, but when sent there is one per id
+        if (ids.size() > MAX_BATCH_SIZE || (etags != null && etags.size() != ids.size())) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+
+        Map<String, String> knownEtags = new HashMap<>();
+        if (etags != null) {
+            for (int i = 0; i < ids.size(); i++) {
+                knownEtags.put(ids.get(i), etags.get(i));
+            }
+        }
+
+        List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<String, JsonFragment> products = card
+                ? productJsonCache.getCards(uniqueIds)
+                : productJsonCache.getDetails(uniqueIds);
+
+        ProductBatch<JsonFragment> batch = new ProductBatch<>();
+        for (Map.Entry<String, JsonFragment> product : products.entrySet()) {
+            String id = product.getKey();
+
+            // hash of the json sent to the client, changes with any field of the product
+            String etag = product.getValue().getEtag();
+            batch.getEtags().put(id, etag);
+            if (etag.equals(knownEtags.get(id))) {
+                batch.getUnchanged().add(id);
+            } else {
+                batch.getProducts().add(product.getValue());
+            }
+        }
+
+        for (String id : uniqueIds) {
+            if (!products.containsKey(id)) {
+                batch.getMissing().add(id);
+            }
+        }
+        return new ResponseEntity<>(batch, HttpStatus.OK);
     }
 
     @PostMapping("/add")
@@ -204,11 +393,9 @@ public class ProductController {
         }
 
         // first check if product already exists by name
-        List<Product> products = productService.getAllProducts();
-        for (Product p : products) {
-            if (p.getName().equals(productRequest.getName())) {
-                return new ResponseEntity<>(p, HttpStatus.CONFLICT);
-            }
+        Product existingProduct = productService.getProductByName(productRequest.getName()).orElse(null);
+        if (existingProduct != null) {
+            return new ResponseEntity<>(existingProduct, HttpStatus.CONFLICT);
         }
 
         Category category = null;
@@ -231,7 +418,12 @@ public class ProductController {
                 productRequest.getMapEmbed()
         );
 
-        productService.save(product);
+        // the unique index on name rejects a product created at the same time with the same name
+        try {
+            productService.save(product);
+        } catch (DuplicateKeyException e) {
+            return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+        }
 
         if (category != null) {
             // add product to category
@@ -243,6 +435,31 @@ public class ProductController {
         return new ResponseEntity<>(product, HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<ProductImportResult> importProducts(HttpServletRequest request, @RequestHeader("Authorization") String token) {
+        // check if is admin
+        if (!userService.isAdmin(token)) {
+            return new ResponseEntity<>(null, HttpStatus.UNAUTHORIZED);
+        }
+
+        try {
+            return new ResponseEntity<>(productBulkService.importProducts(request.getInputStream()), HttpStatus.OK);
+        } catch (IOException e) {
+            LOGGER.error("IOException was thrown in importProducts", e);
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestHeader("Authorization") String token) {
+        // check if is admin
+        if (!userService.isAdmin(token)) {
+            return new ResponseEntity<>(null, HttpStatus.UNAUTHORIZED);
+        }
+
+        return new ResponseEntity<>(productBulkService::exportProducts, HttpStatus.OK);
+    }
+
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<String> deleteProduct(@PathVariable ObjectId id, @RequestHeader("Authorization") String token) {
         // check if is admin
@@ -290,6 +507,26 @@ public class ProductController {
             return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
         }
 
+        // update product
+        Product updatedProduct = new Product(
+                productRequest.getName(),
+                productRequest.getDescription(),
+                productRequest.getImages(),
+                productRequest.getFeatures(),
+                productRequest.getAddress(),
+                productRequest.getMapUrl(),
+                productRequest.getPolicies(),
+                productRequest.getMapEmbed()
+        );
+        updatedProduct.setId(id.toString());
+        try {
+            productService.save(updatedProduct);
+        } catch (DuplicateKeyException e) {
+            // another product already has this name, nothing was changed
+            return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+        }
+
+        // the categories only change once the product is saved
         Category category = categoryService.getCategoryByProduct(product);
 
         // check if category id change
@@ -313,20 +550,6 @@ public class ProductController {
             }
         }
 
-        // update product
-        Product updatedProduct = new Product(
-                productRequest.getName(),
-                productRequest.getDescription(),
-                productRequest.getImages(),
-                productRequest.getFeatures(),
-                productRequest.getAddress(),
-                productRequest.getMapUrl(),
-                productRequest.getPolicies(),
-                productRequest.getMapEmbed()
-        );
-        updatedProduct.setId(id.toString());
-        productService.save(updatedProduct);
-
         // send websocket message
         webSocketService.sendMessage("updateProduct", List.of(id.toString()));
         return new ResponseEntity<>(updatedProduct, HttpStatus.OK);
@@ -354,16 +577,13 @@ public class ProductController {
         Long start = setStartOrEndTime(reservationRequest.getStart(), true);
         Long end = setStartOrEndTime(reservationRequest.getEnd(), false);
 
-        // check if reservation is already taken
-        List<Reservation> reservations = reservationService.getReservationsByProductId(product.getId());
-        for (Reservation reservation : reservations) {
-            if (start < reservation.getEnd() && end > reservation.getStart()) {
-                return new ResponseEntity<>(null, HttpStatus.CONFLICT);
-            }
-        }
-
+        // check if reservation is already taken, checked and saved atomically for the product
         Reservation reservation = new Reservation(user.getId(), product.getId(), start, end);
-        reservationService.save(reservation);
+        if (!reservationService.book(reservation)) {
+            return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+        }
+        analyticsService.recordBooking(reservation, product.getAddress());
+        trendingService.recordBooking(product.getId());
 
         // send email to user
         String emailTemplate = emailService.getTemplate("reservation");
@@ -393,11 +613,47 @@ public class ProductController {
         return new ResponseEntity<>(reservationService.getReservationsByProductIdProjection(id.toString()), HttpStatus.OK);
     }
 
+    @GetMapping("/availability/{id}")
+    public ResponseEntity<AvailabilityCalendar> getAvailability(@PathVariable ObjectId id,
+                                                                @RequestParam(required = false) Long from,
+                                                                @RequestParam(defaultValue = "365") int days) {
+        // limit the window to two years
+        if (days < 1 || days > 730) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+
+        long fromDay = AvailabilityService.toEpochDay(from != null ? from : System.currentTimeMillis());
+        String productId = id.toString();
+        return new ResponseEntity<>(new AvailabilityCalendar(productId, fromDay, days,
+                availabilityService.getOccupancy(productId, fromDay, days)), HttpStatus.OK);
+    }
+
     @GetMapping("/getReviewProductId/{id}")
     public ResponseEntity<List<Review>> getReviewByProductId(@PathVariable ObjectId id) {
         return new ResponseEntity<>(reviewService.getReviewsByProductId(id.toString()), HttpStatus.OK);
     }
 
+    @GetMapping("/reviews/{id}")
+    public ResponseEntity<ReviewPage> getReviewPage(@PathVariable ObjectId id,
+                                                    @RequestParam(defaultValue = "recent") String sort,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(defaultValue = "20") int size) {
+        if (!(sort.equals("recent") || sort.equals("rating")) || size < 1 || size > 100) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+
+        ReviewPage page = reviewService.getReviewPage(id.toString(), sort.equals("rating"), cursor, size);
+        if (page == null) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    @GetMapping("/reviews/{id}/histogram")
+    public ResponseEntity<RatingHistogram> getRatingHistogram(@PathVariable ObjectId id) {
+        return new ResponseEntity<>(reviewService.getRatingHistogram(id.toString()), HttpStatus.OK);
+    }
+
     @GetMapping("/getReviewById/{id}")
     public ResponseEntity<Review> getReviewById(@PathVariable ObjectId id) {
         return new ResponseEntity<>(reviewService.getReviewById(id.toString()), HttpStatus.OK);
@@ -416,16 +672,15 @@ public class ProductController {
             return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
         }
 
-        // check if user already reviewed this product
-        List<Review> reviews = reviewService.getReviewsByUserId(user.getId());
-        for (Review review : reviews) {
-            if (review.getProductId().equals(product.getId())) {
-                return new ResponseEntity<>(null, HttpStatus.CONFLICT);
-            }
-        }
-
+        // the unique index on user and product rejects a second review of this product
         Review review = new Review(product.getId(), user.getId(), reviewRequest.getRating(), reviewRequest.getComment());
-        reviewService.save(review);
+        try {
+            reviewService.save(review);
+        } catch (DuplicateKeyException e) {
+            return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+        }
+        analyticsService.recordReview(review, product.getAddress());
+        trendingService.recordReview(product.getId());
 
         // send websocket message
         webSocketService.sendMessage("createReview", List.of(product.getId(), user.getId(), review.getId()));
@@ -0,0 +1,14 @@
+package com.example.SmartStay.product;
+
+import lombok.Getter;
+
+@Getter
+public class ProductDistanceDTO extends ProductRatingDTO {
+    // kilometers from the searched point
+    private double distance;
+
+    public ProductDistanceDTO(Product product, double rating, int ratingCount, double distance) {
+        super(product, rating, ratingCount);
+        this.distance = distance;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.SmartStay.product;
+
+import lombok.Getter;
+
+@Getter
+public class ProductImportResult {
+    private int inserted;
+    // a product with the same name already exists
+    private int duplicated;
+    // lines that are not a valid product
+    private int invalid;
+
+    void addInserted(int count) {
+        inserted += count;
+    }
+
+    void addDuplicated(int count) {
+        duplicated += count;
+    }
+
+    void addInvalid(int count) {
+        invalid += count;
+    }
+}
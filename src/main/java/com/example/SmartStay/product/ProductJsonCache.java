@@ -0,0 +1,162 @@
+package com.example.SmartStay.product;
+
+import com.example.SmartStay.review.ReviewService;
+import com.example.SmartStay.util.JsonFragment;
+import com.example.SmartStay.websocket.BroadcastEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Card (with rating) and detail json of each product, serialized once with the shared ObjectMapper and kept
+ * as utf-8 bytes until an event changes the product, or its rating for cards. Responses embed the fragments.
+ */
+@Service
+public class ProductJsonCache {
+
+    private static final int MAX_CARDS = 10_000;
+    private static final int MAX_DETAILS = 5_000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, JsonFragment> cards = lru(MAX_CARDS);
+    private final Map<String, JsonFragment> details = lru(MAX_DETAILS);
+
+    // incremented on every invalidation, json of products loaded before it is not stored
+    private final AtomicLong version = new AtomicLong();
+
+    private static Map<String, JsonFragment> lru(int maxEntries) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JsonFragment> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    // product id -> card json in the same order as the ids, missing products are skipped
+    public Map<String, JsonFragment> getCards(Collection<String> ids) {
+        return get(cards, ids, missing -> reviewService.addRatings(productService.getCardsByIds(missing)), ProductCard::getId);
+    }
+
+    // cards already loaded with ratings, version is getVersion() before they were loaded
+    public List<JsonFragment> toJson(List<ProductCard> products, long version) {
+        List<JsonFragment> json = new ArrayList<>(products.size());
+        for (ProductCard product : products) {
+            JsonFragment card = cards.get(product.getId());
+            if (card == null) {
+                card = serialize(product);
+                put(cards, product.getId(), card, version);
+            }
+            json.add(card);
+        }
+        return json;
+    }
+
+    // product id -> detail json in the same order as the ids, missing products are skipped
+    public Map<String, JsonFragment> getDetails(Collection<String> ids) {
+        return get(details, ids, productService::getProductsByIds, Product::getId);
+    }
+
+    public Optional<JsonFragment> getDetail(String id) {
+        return Optional.ofNullable(getDetails(List.of(id)).get(id));
+    }
+
+    private <T> Map<String, JsonFragment> get(Map<String, JsonFragment> cache, Collection<String> ids,
+                                              Function<List<String>, List<T>> load, Function<T, String> idOf) {
+        Map<String, JsonFragment> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : new LinkedHashSet<>(ids)) {
+            JsonFragment json = cache.get(id);
+            if (json != null) {
+                found.put(id, json);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long version = this.version.get();
+            for (T product : load.apply(missing)) {
+                JsonFragment json = serialize(product);
+                found.put(idOf.apply(product), json);
+                put(cache, idOf.apply(product), json, version);
+            }
+        }
+
+        Map<String, JsonFragment> ordered = new LinkedHashMap<>();
+        for (String id : ids) {
+            JsonFragment json = found.get(id);
+            if (json != null) {
+                ordered.put(id, json);
+            }
+        }
+        return ordered;
+    }
+
+    private void put(Map<String, JsonFragment> cache, String id, JsonFragment json, long version) {
+        synchronized (cache) {
+            if (this.version.get() == version) {
+                cache.put(id, json);
+            }
+        }
+    }
+
+    private JsonFragment serialize(Object product) {
+        try {
+            return new JsonFragment(objectMapper.writeValueAsBytes(product));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // edits and deletes on any node, including bulk imports
+    @EventListener
+    public void onBroadcastEvent(BroadcastEvent event) {
+        switch (event.getEvent()) {
+            case "updateProduct", "deleteProduct" -> {
+                for (Object productId : event.getData()) {
+                    invalidate(String.valueOf(productId), true);
+                }
+            }
+            // the rating is only part of the card
+            case "createReview" -> {
+                if (!event.getData().isEmpty()) {
+                    invalidate(String.valueOf(event.getData().get(0)), false);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void invalidate(String id, boolean detail) {
+        version.incrementAndGet();
+        synchronized (cards) {
+            cards.remove(id);
+        }
+        if (detail) {
+            synchronized (details) {
+                details.remove(id);
+            }
+        }
+    }
+}
@@ -8,28 +8,51 @@ import org.springframework.stereotype.Repository;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends MongoRepository<Product, ObjectId> {
 
-    @Query("{ $or: [ " +
-            "{ 'address.country': { $regex: ?0, $options: 'i' } }, " +
-            "{ 'address.country': { $regex: ?1, $options: 'i' } }, " +
-            "{ 'address.country': { $regex: ?2, $options: 'i' } }, " +
-            "{ 'address.city': { $regex: ?0, $options: 'i' } }, " +
-            "{ 'address.city': { $regex: ?1, $options: 'i' } }, " +
-            "{ 'address.city': { $regex: ?2, $options: 'i' } } " +
-            "] }"
-    )
-    List<Product> findByMultipleQueriesToAddress(String query1, String query2, String query3);
-
-    @Query("{ $and: [ " +
-            "{ 'address.country': { $regex: ?0, $options: 'i' } }, " +
-            "{ 'address.city': { $regex: ?1, $options: 'i' } }, " +
-            "] }"
-    )
-    List<Product> findByCountryCity(String country, String city);
+    // only the fields of ProductCard, with the first image and the first 200 characters of the description
+    // uploaded images are served in their card size
+    String CARD_PROJECTION = "{ $project: { " +
+            "'name': 1, " +
+            "'address': 1, " +
+            "'images': { $map: { input: { $slice: [ { $ifNull: [ '$images', [] ] }, 1 ] }, in: { $cond: [ " +
+            "{ $regexMatch: { input: '$$this', regex: '^/api/images/[0-9a-f]{24}$' } }, " +
+            "{ $concat: [ '$$this', '?variant=card' ] }, '$$this' ] } } }, " +
+            "'description': { $substrCP: [ { $ifNull: [ '$description', '' ] }, 0, 200 ] } " +
+            "} }";
+
+    @Aggregation(pipeline = {
+            "{ $match: { $and: [ " +
+                    "{ 'address.country': { $regex: ?0, $options: 'i' } }, " +
+                    "{ 'address.city': { $regex: ?1, $options: 'i' } } " +
+                    "] } }",
+            CARD_PROJECTION
+    })
+    List<ProductCard> findCardsByCountryCity(String country, String city);
+
+    @Aggregation(pipeline = {
+            "{ $match: { '_id': { $in: ?0 } } }",
+            CARD_PROJECTION
+    })
+    List<ProductCard> findCardsByIdIn(Collection<ObjectId> ids);
+
+    @Aggregation(pipeline = {
+            "{ $sample: { size: ?0 } }",
+            CARD_PROJECTION
+    })
+    List<ProductCard> findRandomCards(int size);
+
+    Optional<Product> findByName(String name);
 
     @Query(value = "{}", fields = "{ 'address.country': 1, 'address.city': 1 }")
     Collection<ProductSummary> findAllAddresses();
-}
\ No newline at end of file
+
+    @Query(value = "{}", fields = "{ 'name': 1, 'address.country': 1, 'address.city': 1 }")
+    List<ProductSummary> findAllSummaries();
+
+    @Query(value = "{ '_id': { $in: ?0 } }", fields = "{ 'name': 1, 'address.country': 1, 'address.city': 1 }")
+    List<ProductSummary> findSummariesByIdIn(Collection<ObjectId> ids);
+}
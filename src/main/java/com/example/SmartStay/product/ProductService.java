@@ -2,6 +2,15 @@ package com.example.SmartStay.product;
 
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -12,6 +21,9 @@ public class ProductService {
     @Autowired
     ProductRepository productRepository;
 
+    @Autowired
+    MongoTemplate mongoTemplate;
+
     public List<Product> getAllProducts() {
         return productRepository.findAll();
     }
@@ -20,6 +32,20 @@ public class ProductService {
         return productRepository.findById(id);
     }
 
+    // one round trip, products in the same order as the ids
+    public List<Product> getProductsByIds(Collection<String> ids) {
+        List<ObjectId> objectIds = ids.stream().filter(ObjectId::isValid).map(ObjectId::new).toList();
+        Map<String, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(objectIds)) {
+            products.put(product.getId(), product);
+        }
+        return ids.stream().map(products::get).filter(Objects::nonNull).toList();
+    }
+
+    public Optional<Product> getProductByName(String name) {
+        return productRepository.findByName(name);
+    }
+
     public Product save(Product product) {
         return productRepository.save(product);
     }
@@ -28,12 +54,38 @@ public class ProductService {
         productRepository.deleteById(id);
     }
 
-    public List<Product> getProductsByCountryAndCityQuery(String query, String query2, String query3) {
-        return productRepository.findByMultipleQueriesToAddress(query, query2, query3);
+    public List<ProductCard> getCardsByCountryAndCity(String country, String city) {
+        return productRepository.findCardsByCountryCity(country, city);
+    }
+
+    // cards in the same order as the ids, missing products are skipped
+    public List<ProductCard> getCardsByIds(Collection<String> ids) {
+        List<ObjectId> objectIds = ids.stream().filter(ObjectId::isValid).map(ObjectId::new).toList();
+        if (objectIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<String, ProductCard> cards = new HashMap<>();
+        for (ProductCard card : productRepository.findCardsByIdIn(objectIds)) {
+            cards.put(card.getId(), card);
+        }
+        return ids.stream().map(cards::get).filter(Objects::nonNull).toList();
+    }
+
+    public List<ProductCard> getRandomCards(int size) {
+        return productRepository.findRandomCards(size);
+    }
+
+    public List<ProductSummary> getAllSummaries() {
+        return productRepository.findAllSummaries();
     }
 
-    public List<Product> getProductsByCountryAndCity(String country, String city) {
-        return productRepository.findByCountryCity(country, city);
+    public List<ProductSummary> getSummariesByIds(Collection<String> ids) {
+        List<ObjectId> objectIds = ids.stream().filter(ObjectId::isValid).map(ObjectId::new).toList();
+        if (objectIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return productRepository.findSummariesByIdIn(objectIds);
     }
 
     public HashSet<Address> getAllAddresses() {
@@ -47,4 +99,16 @@ public class ProductService {
 
         return addresses;
     }
+
+    // products sorted by distance using the 2dsphere index, ids limits the result to those products (e.g. a category)
+    public GeoResults<Product> getProductsNear(double latitude, double longitude, double radiusKm, Collection<ObjectId> ids, Pageable pageable) {
+        NearQuery nearQuery = NearQuery.near(new GeoJsonPoint(longitude, latitude))
+                .maxDistance(new Distance(radiusKm, Metrics.KILOMETERS));
+        if (ids != null) {
+            nearQuery.query(new Query(Criteria.where("_id").in(ids)));
+        }
+        // paging after the query, setting the query resets skip and limit
+        nearQuery.with(pageable);
+        return mongoTemplate.geoNear(nearQuery, Product.class);
+    }
 }
\ No newline at end of file
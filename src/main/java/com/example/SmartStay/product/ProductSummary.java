@@ -1,5 +1,9 @@
 package com.example.SmartStay.product;
 
 public interface ProductSummary {
+    String getId();
+
+    String getName();
+
     Address getAddress();
 }
\ No newline at end of file
@@ -0,0 +1,193 @@
+package com.example.SmartStay.product;
+
+import com.example.SmartStay.search.ProductSearchIndex;
+import com.example.SmartStay.search.TrigramIndex;
+import com.example.SmartStay.websocket.BroadcastEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Search results with ratings by normalized query. Entries expire after smartstay.search.cache-ttl seconds
+ * and are removed when an event touches them: a product in the result or matching the query changed,
+ * a review of a product in the result, or any category change for one word queries.
+ */
+@Service
+public class SearchCache {
+
+    private static final int MAX_ENTRIES = 1_000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Value("${smartstay.search.cache-ttl:300}")
+    private long ttlSeconds;
+
+    private final Map<String, Entry> entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > MAX_ENTRIES) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    });
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // incremented on every invalidation, a result computed before it is not stored
+    private final AtomicLong version = new AtomicLong();
+
+    private record Entry(List<ProductCard> products, Set<String> productIds, List<String> tokens,
+                         String country, String city, long expiresAt) {
+    }
+
+    // the same words in any order and case are the same search, only the first 3 words are used
+    public static List<String> tokens(String query) {
+        String cleaned = ProductController.cleanSearchString(query);
+        if (cleaned.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(cleaned.split("\\s+")).limit(3).toList();
+    }
+
+    static String normalize(String query) {
+        String key = String.join(" ", tokens(query).stream().sorted().toList());
+        // country, city searches are tried before the words
+        String[] parts = query.split(",");
+        if (query.contains(",") && parts.length == 2) {
+            key = parts[0].trim().toLowerCase(Locale.ROOT) + "," + parts[1].trim().toLowerCase(Locale.ROOT) + "|" + key;
+        }
+        return key;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public List<ProductCard> get(String query) {
+        String key = normalize(query);
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiresAt() < System.currentTimeMillis()) {
+            if (entry != null) {
+                entries.remove(key, entry);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.products();
+    }
+
+    // version is getVersion() before the search started
+    public void put(String query, List<ProductCard> products, long version) {
+        String[] parts = query.split(",");
+        boolean commaQuery = query.contains(",") && parts.length == 2;
+        Set<String> productIds = new HashSet<>();
+        for (ProductCard product : products) {
+            productIds.add(product.getId());
+        }
+        Entry entry = new Entry(List.copyOf(products), productIds, tokens(query),
+                commaQuery ? parts[0].trim() : null, commaQuery ? parts[1].trim() : null,
+                System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttlSeconds));
+
+        synchronized (entries) {
+            if (this.version.get() == version) {
+                entries.put(normalize(query), entry);
+            }
+        }
+    }
+
+    // runs after ProductSearchIndex swapped the index, see its listener order
+    @EventListener
+    public void onBroadcastEvent(BroadcastEvent event) {
+        switch (event.getEvent()) {
+            case "updateProduct" -> {
+                Set<String> ids = toIds(event.getData());
+                // the new address can match queries that did not find the product before
+                List<ProductCard> products = productService.getCardsByIds(ids);
+                invalidate(entry -> containsAny(entry, ids) || products.stream().anyMatch(product -> matches(entry, product)));
+            }
+            case "deleteProduct" -> {
+                Set<String> ids = toIds(event.getData());
+                invalidate(entry -> containsAny(entry, ids));
+            }
+            // the rating of the product changed
+            case "createReview" -> {
+                if (!event.getData().isEmpty()) {
+                    Set<String> ids = Set.of(String.valueOf(event.getData().get(0)));
+                    invalidate(entry -> containsAny(entry, ids));
+                }
+            }
+            // one word queries are looked up as category names first
+            case "createCategory", "updateCategory", "deleteCategory" -> invalidate(entry -> entry.tokens().size() == 1);
+            default -> {
+            }
+        }
+    }
+
+    public SearchCacheStats getStats() {
+        return new SearchCacheStats(entries.size(), hits.get(), misses.get(), evictions.get(), invalidations.get());
+    }
+
+    private void invalidate(Predicate<Entry> touched) {
+        synchronized (entries) {
+            version.incrementAndGet();
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (touched.test(iterator.next())) {
+                    iterator.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static Set<String> toIds(List<Object> data) {
+        Set<String> ids = new HashSet<>();
+        for (Object id : data) {
+            ids.add(String.valueOf(id));
+        }
+        return ids;
+    }
+
+    private static boolean containsAny(Entry entry, Set<String> ids) {
+        for (String id : ids) {
+            if (entry.productIds().contains(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // same conditions as the country, city query and the trigram index
+    private static boolean matches(Entry entry, ProductCard product) {
+        Address address = product.getAddress();
+        if (entry.country() != null && address != null
+                && find(entry.country(), String.valueOf(address.getCountry())) && find(entry.city(), String.valueOf(address.getCity()))) {
+            return true;
+        }
+        return TrigramIndex.matches(String.join(" ", entry.tokens()), ProductSearchIndex.toText(product.getName(), address));
+    }
+
+    private static boolean find(String regex, String value) {
+        try {
+            return Pattern.compile(regex, Pattern.CASE_INSENSITIVE).matcher(value).find();
+        } catch (PatternSyntaxException e) {
+            // the query failed too, nothing was cached for it
+            return false;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.SmartStay.product;
+
+import lombok.Getter;
+
+@Getter
+public class SearchCacheStats {
+    private int size;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public SearchCacheStats(int size, long hits, long misses, long evictions, long invalidations) {
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+    }
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.SmartStay.recommend;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map of non negative int keys to int values, without boxing.
+ * A row of the co-occurrence matrix, or the items of a basket with value 1.
+ */
+class IntIntMap {
+
+    interface EntryConsumer {
+        void accept(int key, int value);
+    }
+
+    private static final int FREE = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    IntIntMap() {
+        keys = new int[8];
+        values = new int[8];
+        Arrays.fill(keys, FREE);
+    }
+
+    int get(int key) {
+        int slot = find(keys, key);
+        return keys[slot] == key ? values[slot] : 0;
+    }
+
+    // adds delta to the value of key, a missing key counts as 0
+    int addTo(int key, int delta) {
+        int slot = find(keys, key);
+        if (keys[slot] == key) {
+            return values[slot] += delta;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return delta;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(keys, FREE);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = find(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // slot of key, or the free slot where it goes
+    private static int find(int[] keys, int key) {
+        int mask = keys.length - 1;
+        int slot = (key * 0x9E3779B9) >>> 1 & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.SmartStay.recommend;
+
+import com.example.SmartStay.reservation.Reservation;
+import com.example.SmartStay.user.User;
+import com.example.SmartStay.user.UserService;
+import com.example.SmartStay.websocket.BroadcastEvent;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * "Similar stays" from the products wishlisted or booked by the same users. The model is built in the
+ * background from the wishlists and reservations and then updated from the booking and wishlist events.
+ * Products removed from a wishlist stay in the model until the next build.
+ */
+@Service
+public class SimilarStayService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimilarStayService.class);
+
+    // most similar products kept per product
+    public static final int TOP = SimilarityModel.TOP;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private UserService userService;
+
+    // empty until the first build finishes
+    private volatile SimilarityModel model = new SimilarityModel();
+
+    // events received while a build reads the collections, applied to the new model before it is used
+    private List<Consumer<SimilarityModel>> pending;
+
+    public List<String> getSimilar(String productId, int k) {
+        return model.similar(productId, k);
+    }
+
+    @Scheduled(initialDelayString = "${smartstay.similar.initial-delay:PT10S}", fixedDelayString = "${smartstay.similar.rebuild-interval:PT6H}")
+    public void rebuild() {
+        SimilarityModel built = new SimilarityModel();
+        synchronized (this) {
+            pending = new ArrayList<>();
+        }
+
+        Query users = new Query();
+        users.fields().include("wishlist");
+        try (Stream<User> stream = mongoTemplate.stream(users, User.class)) {
+            stream.forEach(user -> {
+                if (user.getWishlist() != null) {
+                    user.getWishlist().forEach(productId -> built.add(user.getId(), productId));
+                }
+            });
+        }
+
+        Query reservations = new Query();
+        reservations.fields().include("userId", "productId");
+        try (Stream<Reservation> stream = mongoTemplate.stream(reservations, Reservation.class)) {
+            stream.forEach(reservation -> built.add(reservation.getUserId(), reservation.getProductId()));
+        }
+
+        built.complete();
+        synchronized (this) {
+            pending.forEach(update -> update.accept(built));
+            pending = null;
+            model = built;
+        }
+        LOGGER.info("Similar stays model built");
+    }
+
+    @EventListener
+    public void onBroadcastEvent(BroadcastEvent event) {
+        List<Object> data = event.getData();
+        switch (event.getEvent()) {
+            // product id, user id
+            case "updateReservation" -> {
+                if (data.size() >= 2) {
+                    update(current -> current.add(String.valueOf(data.get(1)), String.valueOf(data.get(0))));
+                }
+            }
+            // user id, the wishlist is read again to find the added products
+            case "updateWishlist" -> {
+                String userId = data.isEmpty() ? null : String.valueOf(data.get(0));
+                if (userId != null && ObjectId.isValid(userId)) {
+                    userService.getUserById(new ObjectId(userId)).ifPresent(user -> {
+                        if (user.getWishlist() != null) {
+                            List<String> wishlist = List.copyOf(user.getWishlist());
+                            update(current -> wishlist.forEach(productId -> current.add(userId, productId)));
+                        }
+                    });
+                }
+            }
+            case "deleteProduct" -> update(current -> data.forEach(id -> current.remove(String.valueOf(id))));
+            default -> {
+            }
+        }
+    }
+
+    // applied to the current model, and to the one being built if there is a build running
+    private synchronized void update(Consumer<SimilarityModel> update) {
+        update.accept(model);
+        if (pending != null) {
+            pending.add(update);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.SmartStay.recommend;
+
+import java.util.*;
+
+/**
+ * Item to item similarity from baskets, the products a user has wishlisted or booked.
+ * Products get int ordinals, each row of the sparse co-occurrence matrix is an {@link IntIntMap}
+ * and the best neighbours of every product are kept sorted, so a lookup is O(k).
+ * Similarity is the cosine of two products: baskets with both / sqrt(baskets with each).
+ */
+class SimilarityModel {
+
+    // neighbours kept per product
+    static final int TOP = 20;
+
+    // only the first items of a very large basket form pairs, the pairs grow with the square of its size
+    private static final int MAX_BASKET = 200;
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final Map<String, IntIntMap> baskets = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+
+    private int[] counts = new int[64];
+    private IntIntMap[] rows = new IntIntMap[64];
+    private int[][] top = new int[64][];
+
+    // updates the neighbours right away, off while building the whole model
+    private boolean incremental = false;
+
+    synchronized void add(String userId, String productId) {
+        int item = ordinal(productId);
+        IntIntMap basket = baskets.computeIfAbsent(userId, id -> new IntIntMap());
+        if (basket.get(item) > 0 || basket.size() >= MAX_BASKET) {
+            return;
+        }
+
+        basket.forEach((other, present) -> {
+            rows[item].addTo(other, 1);
+            rows[other].addTo(item, 1);
+        });
+        basket.addTo(item, 1);
+        counts[item]++;
+
+        if (incremental) {
+            updateTop(item);
+            basket.forEach((other, present) -> updateTop(other));
+        }
+    }
+
+    synchronized void remove(String productId) {
+        Integer item = ordinals.get(productId);
+        if (item != null) {
+            deleted.set(item);
+        }
+    }
+
+    // computes the neighbours of every product and keeps them current from now on
+    synchronized void complete() {
+        for (int item = 0; item < ids.size(); item++) {
+            updateTop(item);
+        }
+        incremental = true;
+    }
+
+    synchronized List<String> similar(String productId, int k) {
+        Integer item = ordinals.get(productId);
+        if (item == null || top[item] == null) {
+            return List.of();
+        }
+        List<String> similar = new ArrayList<>(k);
+        for (int other : top[item]) {
+            if (similar.size() == k) {
+                break;
+            }
+            if (!deleted.get(other)) {
+                similar.add(ids.get(other));
+            }
+        }
+        return similar;
+    }
+
+    private int ordinal(String productId) {
+        Integer item = ordinals.get(productId);
+        if (item != null) {
+            return item;
+        }
+        item = ids.size();
+        ordinals.put(productId, item);
+        ids.add(productId);
+        if (item == rows.length) {
+            counts = Arrays.copyOf(counts, item * 2);
+            rows = Arrays.copyOf(rows, item * 2);
+            top = Arrays.copyOf(top, item * 2);
+        }
+        rows[item] = new IntIntMap();
+        return item;
+    }
+
+    private void updateTop(int item) {
+        IntIntMap row = rows[item];
+        // score in the high bits and ordinal in the low bits, positive floats sort like their bits
+        long[] scored = new long[row.size()];
+        int[] size = {0};
+        row.forEach((other, both) -> {
+            float score = (float) (both / Math.sqrt((double) counts[item] * counts[other]));
+            scored[size[0]++] = (long) Float.floatToIntBits(score) << 32 | other;
+        });
+        Arrays.sort(scored);
+
+        int[] best = new int[Math.min(TOP, scored.length)];
+        for (int i = 0; i < best.length; i++) {
+            best[i] = (int) scored[scored.length - 1 - i];
+        }
+        top[item] = best;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.SmartStay.reservation;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.BitSet;
+
+@Getter
+public class AvailabilityCalendar {
+    private String productId;
+    // first night of the window (yyyy-MM-dd)
+    private String from;
+    private int days;
+    // base64 little-endian bitmap, bit i set means the night from + i is booked
+    private String nights;
+
+    public AvailabilityCalendar(String productId, long fromDay, int days, BitSet nights) {
+        this.productId = productId;
+        this.from = LocalDate.ofEpochDay(fromDay).toString();
+        this.days = days;
+        this.nights = Base64.getEncoder().encodeToString(nights.toByteArray());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.SmartStay.reservation;
+
+import com.example.SmartStay.websocket.BroadcastEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+@Service
+public class AvailabilityService {
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    // night maps are loaded from the reservations the first time a product is requested
+    // and kept current on every booking after that
+    private final ConcurrentHashMap<String, NightMap> nightMaps = new ConcurrentHashMap<>();
+
+    // once every reservation has been loaded, a product without night map has no reservations
+    private volatile boolean loadedAll = false;
+
+    public void markBooked(Reservation reservation) {
+        // marked inside compute, so a reload of the same product can not lose the booking
+        nightMaps.compute(reservation.getProductId(), (productId, nightMap) -> {
+            if (nightMap == null) {
+                nightMap = loadNightMap(productId);
+            }
+            nightMap.mark(toEpochDay(reservation.getStart()), toEpochDay(reservation.getEnd()));
+            return nightMap;
+        });
+    }
+
+    // bookings made on other nodes, the product is loaded again from the reservations
+    @EventListener
+    public void onBroadcastEvent(BroadcastEvent event) {
+        if (event.isRemote() && event.getEvent().equals("updateReservation") && !event.getData().isEmpty()) {
+            nightMaps.compute(String.valueOf(event.getData().get(0)), (productId, nightMap) -> loadNightMap(productId));
+        }
+    }
+
+    public BitSet getOccupancy(String productId, long fromDay, int days) {
+        return getNightMap(productId).window(fromDay, days);
+    }
+
+    public boolean isFree(String productId, long start, long end) {
+        NightMap nightMap = loadedAll ? nightMaps.get(productId) : getNightMap(productId);
+        return nightMap == null || nightMap.isFree(toEpochDay(start), toEpochDay(end));
+    }
+
+    // keeps only the products that are free for every night in [start, end)
+    public <T> List<T> filterAvailable(List<T> products, Function<T, String> productId, long start, long end) {
+        loadAll();
+        long startDay = toEpochDay(start);
+        long endDay = toEpochDay(end);
+        return products.stream()
+                .filter(product -> {
+                    NightMap nightMap = nightMaps.get(productId.apply(product));
+                    return nightMap == null || nightMap.isFree(startDay, endDay);
+                })
+                .toList();
+    }
+
+    // loads the night maps of every product with one pass over the reservations
+    private void loadAll() {
+        if (loadedAll) {
+            return;
+        }
+        synchronized (this) {
+            if (loadedAll) {
+                return;
+            }
+            Map<String, NightMap> loaded = new HashMap<>();
+            try (Stream<ReservationProjection> reservations = reservationRepository.streamAllProjection()) {
+                reservations.forEach(reservation -> loaded.computeIfAbsent(reservation.getProductId(), id -> new NightMap())
+                        .mark(toEpochDay(reservation.getStart()), toEpochDay(reservation.getEnd())));
+            }
+            // a booking made while loading already created its night map from the database
+            loaded.forEach(nightMaps::putIfAbsent);
+            loadedAll = true;
+        }
+    }
+
+    private NightMap getNightMap(String productId) {
+        return nightMaps.computeIfAbsent(productId, this::loadNightMap);
+    }
+
+    private NightMap loadNightMap(String productId) {
+        NightMap nightMap = new NightMap();
+        for (ReservationProjection reservation : reservationRepository.findByProductIdProjection(productId)) {
+            nightMap.mark(toEpochDay(reservation.getStart()), toEpochDay(reservation.getEnd()));
+        }
+        return nightMap;
+    }
+
+    // check-in is at 2 P.M and check-out at 11 A.M, so the night of a reservation is the day it starts
+    public static long toEpochDay(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+}
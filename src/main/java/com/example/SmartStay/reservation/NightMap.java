@@ -0,0 +1,54 @@
+package com.example.SmartStay.reservation;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+
+/**
+ * Occupied nights of a single product, one bit per night.
+ * Bit 0 is the night of {@link #ORIGIN_DAY}, nights before it are ignored.
+ */
+public class NightMap {
+
+    public static final long ORIGIN_DAY = LocalDate.of(2020, 1, 1).toEpochDay();
+
+    private final BitSet nights = new BitSet();
+
+    // marks every night in [fromDay, toDay)
+    public synchronized void mark(long fromDay, long toDay) {
+        int from = toIndex(fromDay);
+        int to = toIndex(toDay);
+        if (from < to) {
+            nights.set(from, to);
+        }
+    }
+
+    // true if no night in [fromDay, toDay) is occupied
+    public synchronized boolean isFree(long fromDay, long toDay) {
+        int from = toIndex(fromDay);
+        int to = toIndex(toDay);
+        if (from >= to) {
+            return true;
+        }
+        int next = nights.nextSetBit(from);
+        return next == -1 || next >= to;
+    }
+
+    // copy of the nights in [fromDay, fromDay + days), bit 0 is fromDay
+    public synchronized BitSet window(long fromDay, int days) {
+        BitSet window = new BitSet(days);
+        for (int i = nights.nextSetBit(toIndex(fromDay)); i >= 0; i = nights.nextSetBit(i + 1)) {
+            long offset = i + ORIGIN_DAY - fromDay;
+            if (offset >= days) {
+                break;
+            }
+            if (offset >= 0) {
+                window.set((int) offset);
+            }
+        }
+        return window;
+    }
+
+    private static int toIndex(long day) {
+        return (int) Math.max(0, day - ORIGIN_DAY);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.SmartStay.reservation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * One booked night of a product. The id is productId:epochDay, so the unique _id index
+ * rejects a second reservation of the same night from any node.
+ */
+@Data
+@Document(collection = "night_slots")
+@AllArgsConstructor
+@NoArgsConstructor
+public class NightSlot {
+
+    @Id
+    private String id;
+
+    private String productId;
+
+    private long day;
+
+    @Indexed
+    private String reservationId;
+
+    public NightSlot(String productId, long day, String reservationId) {
+        this(toId(productId, day), productId, day, reservationId);
+    }
+
+    public static String toId(String productId, long day) {
+        return productId + ":" + day;
+    }
+}
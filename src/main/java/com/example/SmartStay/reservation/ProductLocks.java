@@ -0,0 +1,23 @@
+package com.example.SmartStay.reservation;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks by product id. Bookings of the same product on this node run one at a time,
+ * bookings of different products only wait for each other when they share a stripe.
+ */
+public class ProductLocks {
+
+    private final ReentrantLock[] locks;
+
+    public ProductLocks(int stripes) {
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public ReentrantLock get(String productId) {
+        return locks[Math.floorMod(productId.hashCode(), locks.length)];
+    }
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -11,12 +12,13 @@ import org.springframework.data.mongodb.core.mapping.Document;
 @Document(collection = "reservations")
 @AllArgsConstructor
 @NoArgsConstructor
+// trips of a user sorted by start date, in both directions
+@CompoundIndex(name = "user_start_idx", def = "{'userId': 1, 'start': 1, '_id': 1}")
 public class Reservation {
 
     @Id
     private String id;
 
-    @Indexed
     private String userId;
 
     @Indexed
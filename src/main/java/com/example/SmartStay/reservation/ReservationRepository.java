@@ -4,6 +4,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ReservationRepository extends MongoRepository<Reservation, String> {
     List<Reservation> findByUserId(String userId);
@@ -11,4 +12,7 @@ public interface ReservationRepository extends MongoRepository<Reservation, Stri
 
     @Query(value = "{'productId': ?0}", fields = "{'productId': 1, 'start': 1, 'end': 1}")
     List<ReservationProjection> findByProductIdProjection(String id);
+
+    @Query(value = "{}", fields = "{'productId': 1, 'start': 1, 'end': 1}")
+    Stream<ReservationProjection> streamAllProjection();
 }
\ No newline at end of file
@@ -1,24 +1,159 @@
 package com.example.SmartStay.reservation;
 
+import com.example.SmartStay.product.ProductCard;
+import com.example.SmartStay.product.ProductService;
+import com.example.SmartStay.review.ReviewService;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class ReservationService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReservationService.class);
+
+    private static final int LOCK_STRIPES = 256;
+
     @Autowired
     private ReservationRepository reservationRepository;
 
-    public void save(Reservation reservation) {
-        reservationRepository.save(reservation);
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    private final ProductLocks productLocks = new ProductLocks(LOCK_STRIPES);
+
+    /**
+     * Saves the reservation if none of its nights is taken, returns false otherwise.
+     * On this node the bookings of a product are serialized by a striped lock and checked against
+     * the night map, so a hot listing does not go to the database for every rejected request.
+     * Across nodes the night slots are the guard: the first node to insert a night wins.
+     */
+    public boolean book(Reservation reservation) {
+        ReentrantLock lock = productLocks.get(reservation.getProductId());
+        lock.lock();
+        try {
+            if (!availabilityService.isFree(reservation.getProductId(), reservation.getStart(), reservation.getEnd())) {
+                return false;
+            }
+
+            reservation.setId(new ObjectId().toHexString());
+            if (!claimNights(reservation)) {
+                return false;
+            }
+            try {
+                reservationRepository.save(reservation);
+            } catch (RuntimeException e) {
+                releaseNights(reservation.getId());
+                throw e;
+            }
+            availabilityService.markBooked(reservation);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // inserts one slot per night, if any night is taken the inserted slots are removed again
+    private boolean claimNights(Reservation reservation) {
+        List<NightSlot> slots = new ArrayList<>();
+        long end = AvailabilityService.toEpochDay(reservation.getEnd());
+        for (long day = AvailabilityService.toEpochDay(reservation.getStart()); day < end; day++) {
+            slots.add(new NightSlot(reservation.getProductId(), day, reservation.getId()));
+        }
+
+        try {
+            mongoTemplate.insertAll(slots);
+            return true;
+        } catch (DuplicateKeyException e) {
+            LOGGER.info("Nights of product " + reservation.getProductId() + " already booked on another node");
+            releaseNights(reservation.getId());
+            return false;
+        }
+    }
+
+    private void releaseNights(String reservationId) {
+        mongoTemplate.remove(new Query(Criteria.where("reservationId").is(reservationId)), NightSlot.class);
     }
 
     public List<Reservation> getReservationsByUserId(String userId) {
         return reservationRepository.findByUserId(userId);
     }
 
+    /**
+     * A page of the trips of a user with the cards of their products, loaded with one query for the cards.
+     * Upcoming trips (not finished yet) go from the nearest start date, past trips from the latest.
+     * The cursor is start_id of the last trip of the previous page, returns null if it is not valid.
+     */
+    public TripPage getTripPage(String userId, boolean upcoming, String cursor, int size) {
+        long now = System.currentTimeMillis();
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (upcoming) {
+            criteria.and("end").gt(now);
+        } else {
+            criteria.and("end").lte(now);
+        }
+        Sort.Direction direction = upcoming ? Sort.Direction.ASC : Sort.Direction.DESC;
+
+        if (cursor != null) {
+            String[] parts = cursor.split("_");
+            if (parts.length != 2 || !ObjectId.isValid(parts[1])) {
+                return null;
+            }
+            long start;
+            try {
+                start = Long.parseLong(parts[0]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            ObjectId id = new ObjectId(parts[1]);
+            criteria.orOperator(
+                    upcoming ? Criteria.where("start").gt(start) : Criteria.where("start").lt(start),
+                    upcoming ? Criteria.where("start").is(start).and("_id").gt(id) : Criteria.where("start").is(start).and("_id").lt(id)
+            );
+        }
+
+        List<Reservation> reservations = mongoTemplate.find(
+                Query.query(criteria).with(Sort.by(direction, "start", "_id")).limit(size), Reservation.class);
+
+        Map<String, ProductCard> cards = new HashMap<>();
+        List<ProductCard> products = productService.getCardsByIds(reservations.stream().map(Reservation::getProductId).distinct().toList());
+        for (ProductCard card : reviewService.addRatings(products)) {
+            cards.put(card.getId(), card);
+        }
+        List<Trip> trips = reservations.stream()
+                .map(reservation -> new Trip(reservation, cards.get(reservation.getProductId())))
+                .toList();
+
+        String next = null;
+        if (reservations.size() == size) {
+            Reservation last = reservations.get(reservations.size() - 1);
+            next = last.getStart() + "_" + last.getId();
+        }
+        return new TripPage(trips, next);
+    }
+
     public List<Reservation> getReservationsByProductId(String productId) {
         return reservationRepository.findByProductId(productId);
     }
@@ -26,4 +161,4 @@ public class ReservationService {
     public List<ReservationProjection> getReservationsByProductIdProjection(String productId) {
         return reservationRepository.findByProductIdProjection(productId);
     }
-}
\ No newline at end of file
+}
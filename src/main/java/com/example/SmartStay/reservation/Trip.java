@@ -0,0 +1,22 @@
+package com.example.SmartStay.reservation;
+
+import com.example.SmartStay.product.ProductCard;
+import lombok.Getter;
+
+// a reservation of the user with the card of its product, null if the product was deleted
+@Getter
+public class Trip {
+    private String id;
+    private String productId;
+    private Long start;
+    private Long end;
+    private ProductCard product;
+
+    public Trip(Reservation reservation, ProductCard product) {
+        this.id = reservation.getId();
+        this.productId = reservation.getProductId();
+        this.start = reservation.getStart();
+        this.end = reservation.getEnd();
+        this.product = product;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.SmartStay.reservation;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class TripPage {
+    private List<Trip> trips;
+    // cursor of the next page, null if this is the last one
+    private String next;
+
+    public TripPage(List<Trip> trips, String next) {
+        this.trips = trips;
+        this.next = next;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.SmartStay.review;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@NoArgsConstructor
+public class RatingCount {
+    // rating
+    private int id;
+    private int count;
+}
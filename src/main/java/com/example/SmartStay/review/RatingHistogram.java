@@ -0,0 +1,27 @@
+package com.example.SmartStay.review;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Getter
+public class RatingHistogram {
+    private String productId;
+    // rating -> number of reviews
+    private Map<Integer, Integer> ratings = new TreeMap<>();
+    private int count;
+    private double rating;
+
+    public RatingHistogram(String productId, List<RatingCount> ratingCounts) {
+        this.productId = productId;
+        long total = 0;
+        for (RatingCount ratingCount : ratingCounts) {
+            ratings.put(ratingCount.getId(), ratingCount.getCount());
+            count += ratingCount.getCount();
+            total += (long) ratingCount.getId() * ratingCount.getCount();
+        }
+        this.rating = count == 0 ? 0 : (double) total / count;
+    }
+}
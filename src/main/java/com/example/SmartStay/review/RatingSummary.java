@@ -0,0 +1,13 @@
+package com.example.SmartStay.review;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@NoArgsConstructor
+public class RatingSummary {
+    // product id
+    private String id;
+    private double rating;
+    private int count;
+}
@@ -4,22 +4,28 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
 @Document(collection = "reviews")
 @NoArgsConstructor
 @AllArgsConstructor
+@CompoundIndexes({
+        // one review per user and product
+        @CompoundIndex(name = "user_product_unique_idx", def = "{'userId': 1, 'productId': 1}", unique = true),
+        // pages of reviews of a product sorted by recency or rating
+        @CompoundIndex(name = "product_recent_idx", def = "{'productId': 1, '_id': -1}"),
+        @CompoundIndex(name = "product_rating_idx", def = "{'productId': 1, 'rating': -1, '_id': -1}")
+})
 public class Review {
 
     @Id
     private String id;
 
-    @Indexed
     private String productId;
 
-    @Indexed
     private String userId;
 
     private int rating;
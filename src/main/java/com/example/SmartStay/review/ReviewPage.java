@@ -0,0 +1,17 @@
+package com.example.SmartStay.review;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class ReviewPage {
+    private List<Review> reviews;
+    // cursor of the next page, null if this is the last one
+    private String next;
+
+    public ReviewPage(List<Review> reviews, String next) {
+        this.reviews = reviews;
+        this.next = next;
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.SmartStay.review;
 
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ReviewRepository extends MongoRepository<Review, String> {
@@ -14,4 +16,22 @@ public interface ReviewRepository extends MongoRepository<Review, String> {
 
     @Query(value = "{'userId': ?0}", fields = "{'rating': 1}")
     List<ReviewProjection> findByUserIdProjection(String userId);
+
+    @Aggregation(pipeline = {
+            "{ $match: { 'productId': { $in: ?0 } } }",
+            "{ $group: { '_id': '$productId', 'rating': { $avg: '$rating' }, 'count': { $sum: 1 } } }"
+    })
+    List<RatingSummary> findRatingSummaries(Collection<String> productIds);
+
+    @Aggregation(pipeline = {
+            "{ $match: { 'productId': ?0 } }",
+            "{ $group: { '_id': '$rating', 'count': { $sum: 1 } } }"
+    })
+    List<RatingCount> findRatingCounts(String productId);
+
+    @Aggregation(pipeline = {
+            "{ $match: { 'userId': { $in: ?0 } } }",
+            "{ $group: { '_id': '$userId' } }"
+    })
+    List<String> findUserIdsWithReviews(Collection<String> userIds);
 }
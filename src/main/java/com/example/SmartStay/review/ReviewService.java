@@ -1,9 +1,20 @@
 package com.example.SmartStay.review;
 
+import com.example.SmartStay.product.ProductCard;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class ReviewService {
@@ -11,6 +22,9 @@ public class ReviewService {
     @Autowired
     private ReviewRepository reviewRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     public void save(Review review) {
         reviewRepository.save(review);
     }
@@ -34,4 +48,82 @@ public class ReviewService {
     public List<ReviewProjection> getReviewsByUserIdProjection(String userId) {
         return reviewRepository.findByUserIdProjection(userId);
     }
-}
\ No newline at end of file
+
+    // average rating and count of reviews per product id, with one query for all the products
+    public Map<String, RatingSummary> getRatingSummaries(Collection<String> productIds) {
+        Map<String, RatingSummary> summaries = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return summaries;
+        }
+        for (RatingSummary summary : reviewRepository.findRatingSummaries(productIds)) {
+            summaries.put(summary.getId(), summary);
+        }
+        return summaries;
+    }
+
+    // ids of the users that wrote at least one review
+    public Set<String> getUserIdsWithReviews(Collection<String> userIds) {
+        return new HashSet<>(reviewRepository.findUserIdsWithReviews(userIds));
+    }
+
+    public RatingHistogram getRatingHistogram(String productId) {
+        return new RatingHistogram(productId, reviewRepository.findRatingCounts(productId));
+    }
+
+    // sets the ratings of all the cards with one aggregation
+    public List<ProductCard> addRatings(List<ProductCard> products) {
+        Map<String, RatingSummary> ratings = getRatingSummaries(products.stream().map(ProductCard::getId).toList());
+        for (ProductCard product : products) {
+            RatingSummary rating = ratings.get(product.getId());
+            if (rating != null) {
+                product.setRating(rating.getRating(), rating.getCount());
+            }
+        }
+        return products;
+    }
+
+    // keyset pagination, the cursor is the id of the last review ("recent")
+    // or its rating and id ("rating"), returns null if the cursor is not valid
+    public ReviewPage getReviewPage(String productId, boolean byRating, String cursor, int size) {
+        Criteria criteria = Criteria.where("productId").is(productId);
+        Sort sort;
+
+        if (byRating) {
+            sort = Sort.by(Sort.Direction.DESC, "rating", "_id");
+            if (cursor != null) {
+                String[] parts = cursor.split("_");
+                if (parts.length != 2 || !ObjectId.isValid(parts[1])) {
+                    return null;
+                }
+                int rating;
+                try {
+                    rating = Integer.parseInt(parts[0]);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                ObjectId id = new ObjectId(parts[1]);
+                criteria.orOperator(
+                        Criteria.where("rating").lt(rating),
+                        Criteria.where("rating").is(rating).and("_id").lt(id)
+                );
+            }
+        } else {
+            sort = Sort.by(Sort.Direction.DESC, "_id");
+            if (cursor != null) {
+                if (!ObjectId.isValid(cursor)) {
+                    return null;
+                }
+                criteria.and("_id").lt(new ObjectId(cursor));
+            }
+        }
+
+        List<Review> reviews = mongoTemplate.find(Query.query(criteria).with(sort).limit(size), Review.class);
+
+        String next = null;
+        if (reviews.size() == size) {
+            Review last = reviews.get(reviews.size() - 1);
+            next = byRating ? last.getRating() + "_" + last.getId() : last.getId();
+        }
+        return new ReviewPage(reviews, next);
+    }
+}
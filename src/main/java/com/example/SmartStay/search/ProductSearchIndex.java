@@ -0,0 +1,88 @@
+package com.example.SmartStay.search;
+
+import com.example.SmartStay.product.Address;
+import com.example.SmartStay.product.ProductService;
+import com.example.SmartStay.product.ProductSummary;
+import com.example.SmartStay.websocket.BroadcastEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trigram index over the name, city and country of every product, read once and then kept current
+ * from the product events. After each change the index is rebuilt from memory and swapped.
+ */
+@Service
+public class ProductSearchIndex {
+
+    // most products a search returns
+    public static final int MAX_RESULTS = 500;
+
+    @Autowired
+    private ProductService productService;
+
+    // indexed text by product id
+    private final Map<String, String> texts = new ConcurrentHashMap<>();
+
+    private volatile TrigramIndex index;
+
+    public List<String> search(String query) {
+        return getIndex().search(query, MAX_RESULTS);
+    }
+
+    public static String toText(String name, Address address) {
+        if (address == null) {
+            return Objects.toString(name, "");
+        }
+        return Objects.toString(name, "") + " " + Objects.toString(address.getCity(), "") + " " + Objects.toString(address.getCountry(), "");
+    }
+
+    private TrigramIndex getIndex() {
+        TrigramIndex current = index;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (index == null) {
+                for (ProductSummary summary : productService.getAllSummaries()) {
+                    texts.put(summary.getId(), toText(summary.getName(), summary.getAddress()));
+                }
+                index = TrigramIndex.build(new HashMap<>(texts));
+            }
+            return index;
+        }
+    }
+
+    // before SearchCache, a search that starts after the cache is invalidated has to see the new index
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onBroadcastEvent(BroadcastEvent event) {
+        boolean update = event.getEvent().equals("updateProduct");
+        if (!(update || event.getEvent().equals("deleteProduct"))) {
+            return;
+        }
+        synchronized (this) {
+            // not loaded yet, the first search reads everything
+            if (index == null) {
+                return;
+            }
+            List<String> ids = event.getData().stream().map(String::valueOf).toList();
+            if (update) {
+                for (ProductSummary summary : productService.getSummariesByIds(ids)) {
+                    texts.put(summary.getId(), toText(summary.getName(), summary.getAddress()));
+                }
+            } else {
+                ids.forEach(texts::remove);
+            }
+            index = TrigramIndex.build(new HashMap<>(texts));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.SmartStay.search;
+
+import com.example.SmartStay.util.TextUtil;
+
+import java.util.*;
+
+/**
+ * Immutable trigram index over the words of a set of documents. A query word is compared with every
+ * indexed word sharing one of its trigrams, found through the posting lists, and matches a word if
+ * their similarity is at least {@link #MIN_SIMILARITY}. Documents are ranked by the sum of the best
+ * similarity of each query word, so typos and missing accents still find the document.
+ */
+public class TrigramIndex {
+
+    // the default threshold of the PostgreSQL pg_trgm extension, a swap of two letters is still above it
+    public static final double MIN_SIMILARITY = 0.3;
+
+    // a query word that starts an indexed word is a good match even if most trigrams differ ("mad", "madrid")
+    private static final double PREFIX_SIMILARITY = 0.8;
+
+    private static final int MAX_QUERY_WORDS = 5;
+
+    private final String[] docIds;
+    private final String[] words;
+    private final int[] wordTrigrams;
+    // word ids by trigram, and document ordinals by word id, both sorted
+    private final Map<String, int[]> postings;
+    private final int[][] wordDocs;
+
+    private TrigramIndex(String[] docIds, String[] words, int[] wordTrigrams, Map<String, int[]> postings, int[][] wordDocs) {
+        this.docIds = docIds;
+        this.words = words;
+        this.wordTrigrams = wordTrigrams;
+        this.postings = postings;
+        this.wordDocs = wordDocs;
+    }
+
+    // texts by document id
+    public static TrigramIndex build(Map<String, String> texts) {
+        String[] docIds = texts.keySet().toArray(String[]::new);
+        Map<String, Integer> wordIds = new HashMap<>();
+        List<String> words = new ArrayList<>();
+        List<SortedSet<Integer>> wordDocs = new ArrayList<>();
+
+        for (int doc = 0; doc < docIds.length; doc++) {
+            for (String word : words(texts.get(docIds[doc]))) {
+                Integer wordId = wordIds.get(word);
+                if (wordId == null) {
+                    wordId = words.size();
+                    wordIds.put(word, wordId);
+                    words.add(word);
+                    wordDocs.add(new TreeSet<>());
+                }
+                wordDocs.get(wordId).add(doc);
+            }
+        }
+
+        Map<String, List<Integer>> postingLists = new HashMap<>();
+        int[] wordTrigrams = new int[words.size()];
+        for (int wordId = 0; wordId < words.size(); wordId++) {
+            Set<String> trigrams = trigrams(words.get(wordId));
+            wordTrigrams[wordId] = trigrams.size();
+            for (String trigram : trigrams) {
+                postingLists.computeIfAbsent(trigram, t -> new ArrayList<>()).add(wordId);
+            }
+        }
+
+        Map<String, int[]> postings = new HashMap<>();
+        postingLists.forEach((trigram, ids) -> postings.put(trigram, ids.stream().mapToInt(Integer::intValue).toArray()));
+        int[][] docs = wordDocs.stream().map(set -> set.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+        return new TrigramIndex(docIds, words.toArray(String[]::new), wordTrigrams, postings, docs);
+    }
+
+    // ids of the matching documents, best first
+    public List<String> search(String query, int limit) {
+        double[] scores = new double[docIds.length];
+        for (String queryWord : words(query).stream().limit(MAX_QUERY_WORDS).toList()) {
+            double[] best = new double[docIds.length];
+            for (Map.Entry<Integer, Double> match : matchWords(queryWord).entrySet()) {
+                for (int doc : wordDocs[match.getKey()]) {
+                    best[doc] = Math.max(best[doc], match.getValue());
+                }
+            }
+            for (int doc = 0; doc < scores.length; doc++) {
+                scores[doc] += best[doc];
+            }
+        }
+
+        List<Integer> matches = new ArrayList<>();
+        for (int doc = 0; doc < scores.length; doc++) {
+            if (scores[doc] > 0) {
+                matches.add(doc);
+            }
+        }
+        return matches.stream()
+                .sorted(Comparator.comparingDouble((Integer doc) -> scores[doc]).reversed())
+                .limit(limit)
+                .map(doc -> docIds[doc])
+                .toList();
+    }
+
+    // similarity by indexed word id, only words with at least MIN_SIMILARITY
+    private Map<Integer, Double> matchWords(String queryWord) {
+        Set<String> trigrams = trigrams(queryWord);
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (String trigram : trigrams) {
+            for (int wordId : postings.getOrDefault(trigram, new int[0])) {
+                shared.merge(wordId, 1, Integer::sum);
+            }
+        }
+
+        Map<Integer, Double> matches = new HashMap<>();
+        shared.forEach((wordId, count) -> {
+            double similarity = 2.0 * count / (trigrams.size() + wordTrigrams[wordId]);
+            if (words[wordId].startsWith(queryWord)) {
+                similarity = Math.max(similarity, PREFIX_SIMILARITY);
+            }
+            if (similarity >= MIN_SIMILARITY) {
+                matches.put(wordId, similarity);
+            }
+        });
+        return matches;
+    }
+
+    // true if a word of the query matches a word of the text, the same test search uses
+    public static boolean matches(String query, String text) {
+        List<String> textWords = words(text);
+        for (String queryWord : words(query)) {
+            Set<String> trigrams = trigrams(queryWord);
+            for (String word : textWords) {
+                if (similarity(queryWord, trigrams, word) >= MIN_SIMILARITY) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static double similarity(String queryWord, Set<String> queryTrigrams, String word) {
+        if (word.startsWith(queryWord)) {
+            return PREFIX_SIMILARITY;
+        }
+        Set<String> trigrams = trigrams(word);
+        long shared = queryTrigrams.stream().filter(trigrams::contains).count();
+        return 2.0 * shared / (queryTrigrams.size() + trigrams.size());
+    }
+
+    private static List<String> words(String text) {
+        String folded = TextUtil.fold(text);
+        return folded.isEmpty() ? List.of() : Arrays.asList(folded.split(" "));
+    }
+
+    // trigrams of the word padded with one space on each side, "rio" -> " ri", "rio", "io "
+    static Set<String> trigrams(String word) {
+        String padded = " " + word + " ";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.SmartStay.suggest;
+
+import lombok.Getter;
+
+@Getter
+public class Suggestion {
+    // product, category, city or country
+    private String type;
+    private String text;
+    // product or category id, null for places
+    private String id;
+    // what to send to /api/products/search for this suggestion
+    private String query;
+    private long weight;
+
+    public Suggestion(String type, String text, String id, String query, long weight) {
+        this.type = type;
+        this.text = text;
+        this.id = id;
+        this.query = query;
+        this.weight = weight;
+    }
+}
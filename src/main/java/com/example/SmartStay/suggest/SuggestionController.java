@@ -0,0 +1,28 @@
+package com.example.SmartStay.suggest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/suggestions")
+public class SuggestionController {
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @GetMapping
+    public ResponseEntity<List<Suggestion>> suggest(@RequestParam String prefix, @RequestParam(defaultValue = "8") int limit) {
+        if (limit < 1 || limit > SuggestionTrie.TOP) {
+            return new ResponseEntity<>(Collections.emptyList(), HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(suggestionService.suggest(prefix, limit), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.SmartStay.suggest;
+
+import com.example.SmartStay.category.Category;
+import com.example.SmartStay.category.CategoryService;
+import com.example.SmartStay.product.Address;
+import com.example.SmartStay.product.ProductService;
+import com.example.SmartStay.product.ProductSummary;
+import com.example.SmartStay.review.RatingSummary;
+import com.example.SmartStay.review.ReviewService;
+import com.example.SmartStay.websocket.BroadcastEvent;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Type-ahead over product names, categories, cities and countries. The catalog is read once and then
+ * kept current from the product, category and review events, only the changed entries are read again.
+ * The trie is rebuilt from memory in the background at most every smartstay.suggest.rebuild-interval,
+ * not on the request that sent the event. Lookups read the current trie without locking.
+ * A product weighs 1 plus its reviews, places and categories the sum of their products.
+ */
+@Service
+public class SuggestionService {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    private record ProductEntry(String name, String country, String city, long weight) {
+    }
+
+    private record CategoryEntry(String name, Set<String> products) {
+    }
+
+    private final Map<String, ProductEntry> products = new ConcurrentHashMap<>();
+    private final Map<String, CategoryEntry> categories = new ConcurrentHashMap<>();
+
+    private volatile SuggestionTrie trie = SuggestionTrie.EMPTY;
+    private volatile boolean loaded = false;
+    // the entries changed since the trie was built
+    private boolean changed = false;
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        load();
+        return trie.find(prefix, limit);
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            List<ProductSummary> summaries = productService.getAllSummaries();
+            Map<String, RatingSummary> ratings = reviewService.getRatingSummaries(summaries.stream().map(ProductSummary::getId).toList());
+            for (ProductSummary summary : summaries) {
+                RatingSummary rating = ratings.get(summary.getId());
+                putProduct(summary, 1 + (rating != null ? rating.getCount() : 0));
+            }
+            for (Category category : categoryService.getAllCategories()) {
+                putCategory(category);
+            }
+            rebuild();
+            loaded = true;
+        }
+    }
+
+    @EventListener
+    public void onBroadcastEvent(BroadcastEvent event) {
+        // not loaded yet, the first lookup reads everything
+        if (!loaded || event.getData().isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            switch (event.getEvent()) {
+                case "updateProduct" -> {
+                    List<String> ids = event.getData().stream().map(String::valueOf).toList();
+                    for (ProductSummary summary : productService.getSummariesByIds(ids)) {
+                        ProductEntry previous = products.get(summary.getId());
+                        putProduct(summary, previous != null ? previous.weight() : 1);
+                    }
+                }
+                case "deleteProduct" -> event.getData().forEach(id -> products.remove(String.valueOf(id)));
+                case "createReview" -> products.computeIfPresent(String.valueOf(event.getData().get(0)),
+                        (id, product) -> new ProductEntry(product.name(), product.country(), product.city(), product.weight() + 1));
+                case "createCategory", "updateCategory", "deleteCategory" -> {
+                    String id = String.valueOf(event.getData().get(0));
+                    Optional<Category> category = ObjectId.isValid(id) ? categoryService.getCategoryById(new ObjectId(id)) : Optional.empty();
+                    if (category.isPresent()) {
+                        putCategory(category.get());
+                    } else {
+                        categories.remove(id);
+                    }
+                }
+                default -> {
+                    return;
+                }
+            }
+            changed = true;
+        }
+    }
+
+    // built outside the lock, the events are not kept waiting and a change made meanwhile sets changed again
+    @Scheduled(fixedDelayString = "${smartstay.suggest.rebuild-interval:PT5S}")
+    public void rebuildIfChanged() {
+        synchronized (this) {
+            if (!changed) {
+                return;
+            }
+            changed = false;
+        }
+        rebuild();
+    }
+
+    private void putProduct(ProductSummary summary, long weight) {
+        Address address = summary.getAddress();
+        products.put(summary.getId(), new ProductEntry(summary.getName(),
+                address != null ? address.getCountry() : null, address != null ? address.getCity() : null, weight));
+    }
+
+    private void putCategory(Category category) {
+        categories.put(category.getId(), new CategoryEntry(category.getName(),
+                category.getProducts() != null ? category.getProducts() : Set.of()));
+    }
+
+    private void rebuild() {
+        List<Suggestion> suggestions = new ArrayList<>();
+        Map<String, Long> countries = new HashMap<>();
+        // country, city
+        Map<List<String>, Long> cities = new HashMap<>();
+
+        products.forEach((id, product) -> {
+            if (product.name() != null) {
+                suggestions.add(new Suggestion("product", product.name(), id, product.name(), product.weight()));
+            }
+            if (product.country() != null) {
+                countries.merge(product.country(), product.weight(), Long::sum);
+                if (product.city() != null) {
+                    cities.merge(List.of(product.country(), product.city()), product.weight(), Long::sum);
+                }
+            }
+        });
+        countries.forEach((country, weight) -> suggestions.add(new Suggestion("country", country, null, country, weight)));
+        cities.forEach((place, weight) -> suggestions.add(new Suggestion("city", place.get(1) + ", " + place.get(0), null,
+                place.get(0) + ", " + place.get(1), weight)));
+        categories.forEach((id, category) -> {
+            if (category.name() != null) {
+                long weight = category.products().stream()
+                        .map(products::get)
+                        .filter(Objects::nonNull)
+                        .mapToLong(ProductEntry::weight)
+                        .sum();
+                suggestions.add(new Suggestion("category", category.name(), id, category.name(), weight));
+            }
+        });
+
+        trie = SuggestionTrie.build(suggestions);
+    }
+}
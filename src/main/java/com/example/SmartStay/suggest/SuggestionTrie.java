@@ -0,0 +1,94 @@
+package com.example.SmartStay.suggest;
+
+import com.example.SmartStay.util.TextUtil;
+
+import java.util.*;
+
+/**
+ * Immutable prefix tree over the folded text of the suggestions. Every word start is a key,
+ * so "paul" finds "São Paulo". Each node keeps its best suggestions, a lookup only walks the prefix.
+ */
+public class SuggestionTrie {
+
+    // suggestions kept per node, the most a lookup can return
+    public static final int TOP = 10;
+
+    private static final Comparator<Suggestion> RANKING = Comparator.comparingLong(Suggestion::getWeight).reversed()
+            .thenComparingInt(suggestion -> suggestion.getText().length())
+            .thenComparing(Suggestion::getText);
+
+    public static final SuggestionTrie EMPTY = build(List.of());
+
+    private static class Node {
+        // children sorted by label
+        private char[] labels;
+        private Node[] children;
+        private Suggestion[] top;
+    }
+
+    private final Node root;
+
+    private SuggestionTrie(Node root) {
+        this.root = root;
+    }
+
+    public List<Suggestion> find(String prefix, int limit) {
+        Node node = root;
+        String key = TextUtil.fold(prefix);
+        for (int i = 0; i < key.length() && node != null; i++) {
+            int index = Arrays.binarySearch(node.labels, key.charAt(i));
+            node = index >= 0 ? node.children[index] : null;
+        }
+        if (node == null || key.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.asList(node.top).subList(0, Math.min(limit, node.top.length));
+    }
+
+    public static SuggestionTrie build(Collection<Suggestion> suggestions) {
+        Builder root = new Builder();
+        for (Suggestion suggestion : suggestions) {
+            String text = TextUtil.fold(suggestion.getText());
+            for (int start = 0; start < text.length(); start++) {
+                if (start == 0 || text.charAt(start - 1) == ' ') {
+                    root.insert(text, start, suggestion);
+                }
+            }
+        }
+        return new SuggestionTrie(root.compact());
+    }
+
+    private static class Builder {
+        private final TreeMap<Character, Builder> children = new TreeMap<>();
+        // suggestions whose key ends here
+        private final List<Suggestion> ends = new ArrayList<>();
+
+        private void insert(String key, int index, Suggestion suggestion) {
+            if (index == key.length()) {
+                ends.add(suggestion);
+                return;
+            }
+            children.computeIfAbsent(key.charAt(index), c -> new Builder()).insert(key, index + 1, suggestion);
+        }
+
+        // the best suggestions of a node are among the ones ending here and the best of each child
+        private Node compact() {
+            Node node = new Node();
+            node.labels = new char[children.size()];
+            node.children = new Node[children.size()];
+
+            Set<Suggestion> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+            candidates.addAll(ends);
+            int i = 0;
+            for (Map.Entry<Character, Builder> child : children.entrySet()) {
+                node.labels[i] = child.getKey();
+                node.children[i] = child.getValue().compact();
+                candidates.addAll(Arrays.asList(node.children[i].top));
+                i++;
+            }
+
+            node.top = candidates.stream().sorted(RANKING).limit(TOP).toArray(Suggestion[]::new);
+            return node;
+        }
+    }
+}
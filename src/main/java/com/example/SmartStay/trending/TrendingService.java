@@ -0,0 +1,161 @@
+package com.example.SmartStay.trending;
+
+import com.example.SmartStay.websocket.BroadcastEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Time-decayed popularity of the products on this node. A score halves every smartstay.trending.half-life.
+ * Activity is added already scaled to a base time, weight * e^((now - base) / tau), so recording is one
+ * compare-and-set on the product counter without locks. Each counter keeps the base it is scaled to,
+ * a counter of an older base is moved to the current one by the next record, and the scores are
+ * compared at the current base.
+ * The top products are recalculated in the background and read as a ready list.
+ */
+@Service
+public class TrendingService {
+
+    public static final int TOP = 50;
+
+    static final double VIEW = 1;
+    static final double REVIEW = 2;
+    static final double WISHLIST = 3;
+    static final double BOOKING = 5;
+
+    // the base moves forward before the scaled scores get too large for a double
+    private static final double MAX_EXPONENT = 50;
+
+    // counters below this share of the top score are dropped
+    private static final double PRUNE_RATIO = 1e-6;
+
+    private final double tau;
+
+    // value scaled to base, replaced as a whole so the value and its base always match
+    private record Score(double value, long base) {
+    }
+
+    // a pruned counter, the activity recorded after it goes to a new counter
+    private static final Score REMOVED = new Score(0, 0);
+
+    // score by product id
+    private final Map<String, AtomicReference<Score>> scores = new ConcurrentHashMap<>();
+
+    private volatile long base = System.currentTimeMillis();
+    private volatile List<String> top = List.of();
+
+    public TrendingService(@Value("${smartstay.trending.half-life-hours:6}") double halfLifeHours) {
+        this.tau = TimeUnit.HOURS.toMillis(1) * halfLifeHours / Math.log(2);
+    }
+
+    public void recordView(String productId) {
+        record(productId, VIEW);
+    }
+
+    public void recordReview(String productId) {
+        record(productId, REVIEW);
+    }
+
+    public void recordWishlistAdd(String productId) {
+        record(productId, WISHLIST);
+    }
+
+    public void recordBooking(String productId) {
+        record(productId, BOOKING);
+    }
+
+    void record(String productId, double weight) {
+        long now = System.currentTimeMillis();
+        while (true) {
+            AtomicReference<Score> score = scores.get(productId);
+            if (score == null) {
+                score = scores.computeIfAbsent(productId, id -> new AtomicReference<>(new Score(0, base)));
+            }
+            Score current;
+            Score next;
+            do {
+                current = score.get();
+                if (current == REMOVED) {
+                    break;
+                }
+                long base = this.base;
+                next = new Score(at(current, base) + weight * Math.exp((now - base) / tau), base);
+            } while (!score.compareAndSet(current, next));
+            if (current != REMOVED) {
+                return;
+            }
+            // pruned after it was read from the map
+            scores.remove(productId, score);
+        }
+    }
+
+    // the value of the score scaled to another base
+    private double at(Score score, long base) {
+        return score.base() == base ? score.value() : score.value() * Math.exp((score.base() - base) / tau);
+    }
+
+    // the k products with the highest score, best first
+    public List<String> getTop(int k) {
+        List<String> current = top;
+        return current.subList(0, Math.min(k, current.size()));
+    }
+
+    @Scheduled(fixedDelayString = "${smartstay.trending.refresh-millis:5000}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        if ((now - base) / tau > MAX_EXPONENT) {
+            // each counter is moved to the new base by its next record, until then it is scaled when read
+            base = now;
+        }
+        long base = this.base;
+
+        String[] ids = new String[TOP];
+        double[] best = new double[TOP];
+        int size = 0;
+        double max = 0;
+        for (Map.Entry<String, AtomicReference<Score>> entry : scores.entrySet()) {
+            Score current = entry.getValue().get();
+            if (current == REMOVED) {
+                continue;
+            }
+            double score = at(current, base);
+            max = Math.max(max, score);
+            if (size < TOP || score > best[size - 1]) {
+                // insertion into the sorted top, TOP is small
+                int i = size < TOP ? size++ : TOP - 1;
+                while (i > 0 && best[i - 1] < score) {
+                    best[i] = best[i - 1];
+                    ids[i] = ids[i - 1];
+                    i--;
+                }
+                best[i] = score;
+                ids[i] = entry.getKey();
+            }
+        }
+        top = List.of(Arrays.copyOf(ids, size));
+
+        // products nobody looked at for a long time, only if nothing was recorded since the score was read
+        double threshold = max * PRUNE_RATIO;
+        for (Map.Entry<String, AtomicReference<Score>> entry : scores.entrySet()) {
+            Score score = entry.getValue().get();
+            if (score != REMOVED && at(score, base) < threshold && entry.getValue().compareAndSet(score, REMOVED)) {
+                scores.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @EventListener
+    public void onBroadcastEvent(BroadcastEvent event) {
+        if (event.getEvent().equals("deleteProduct")) {
+            event.getData().forEach(id -> scores.remove(String.valueOf(id)));
+        }
+    }
+}
@@ -1,13 +1,15 @@
 package com.example.SmartStay.user;
 
+import com.example.SmartStay.analytics.AnalyticsService;
 import com.example.SmartStay.email.EmailService;
 import com.example.SmartStay.product.Product;
 import com.example.SmartStay.product.ProductService;
 import com.example.SmartStay.reservation.Reservation;
 import com.example.SmartStay.reservation.ReservationService;
+import com.example.SmartStay.reservation.TripPage;
 import com.example.SmartStay.review.Review;
-import com.example.SmartStay.review.ReviewProjection;
 import com.example.SmartStay.review.ReviewService;
+import com.example.SmartStay.trending.TrendingService;
 import com.example.SmartStay.util.JwtUtil;
 import com.example.SmartStay.util.UserUtil;
 import com.example.SmartStay.websocket.WebSocketService;
@@ -24,7 +26,9 @@ import org.springframework.web.bind.annotation.*;
 
 import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
@@ -62,6 +66,15 @@ public class UserController {
     @Autowired
     private ReviewService reviewService;
 
+    @Autowired
+    private UserNameService userNameService;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private TrendingService trendingService;
+
     @Value("${env.URL}")
     private String URL;
 
@@ -139,6 +152,8 @@ public class UserController {
         // add product to wishlist
         user.getWishlist().add(product.get().getId());
         userService.save(user);
+        analyticsService.recordWishlistAdd(product.get().getId(), product.get().getAddress());
+        trendingService.recordWishlistAdd(product.get().getId());
 
         // send webhook to get wishlist
         webSocketService.sendMessage("updateWishlist", List.of(user.getId()));
@@ -302,6 +317,7 @@ public class UserController {
                 u.setFirstName(updateUserRequest.getFirstName());
                 u.setLastName(updateUserRequest.getLastName());
                 userService.save(u);
+                userNameService.evict(u.getId());
 
                 // generate new jwt and set it
                 String newToken = jwtUtil.generateToken(u);
@@ -404,6 +420,27 @@ public class UserController {
         return new ResponseEntity<>(reservationService.getReservationsByUserId(user.getId()), HttpStatus.OK);
     }
 
+    @GetMapping("/trips")
+    public ResponseEntity<TripPage> getTrips(@RequestHeader("Authorization") String token,
+                                             @RequestParam(defaultValue = "upcoming") String when,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(defaultValue = "20") int size) {
+        User user = userUtil.getValidUser(token);
+        if (user == null) {
+            return new ResponseEntity<>(null, HttpStatus.UNAUTHORIZED);
+        }
+
+        if (!(when.equals("upcoming") || when.equals("past")) || size < 1 || size > 100) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+
+        TripPage page = reservationService.getTripPage(user.getId(), when.equals("upcoming"), cursor, size);
+        if (page == null) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
     @GetMapping("/reviews")
     public ResponseEntity<List<Review>> getReviews(@RequestHeader("Authorization") String token) {
         User user = userUtil.getValidUser(token);
@@ -416,24 +453,23 @@ public class UserController {
 
     @GetMapping("/getName/{id}")
     public ResponseEntity<String> getName(@PathVariable String id) {
-        Optional<User> user = userService.getUserById(new ObjectId(id));
-        if (user.isEmpty()) {
+        Optional<String> name = userNameService.getName(id);
+        if (name.isEmpty()) {
             return new ResponseEntity<>("null", HttpStatus.NOT_FOUND);
         }
 
-        if (!user.get().isConfirmed()) {
-            return new ResponseEntity<>("null", HttpStatus.NOT_FOUND);
-        }
+        return new ResponseEntity<>(name.get(), HttpStatus.OK);
+    }
 
-        // check if user has at least one review
-        // with this, we protect the user's privacy if they have not made any reviews
-        // and someone tries to get their name
-        List<ReviewProjection> reviews = reviewService.getReviewsByUserIdProjection(user.get().getId());
-        if (reviews.isEmpty()) {
-            return new ResponseEntity<>("null", HttpStatus.NOT_FOUND);
+    @GetMapping("/getNames")
+    public ResponseEntity<Map<String, String>> getNames(@RequestParam List<String> ids) {
+        // same limit as a page of reviews
+        if (ids.size() > 100) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
         }
 
-        return new ResponseEntity<>(user.get().getFirstName() + " " + user.get().getLastName(), HttpStatus.OK);
+        // users without name are not confirmed, do not exist or have not made any reviews
+        return new ResponseEntity<>(userNameService.getNames(new LinkedHashSet<>(ids)), HttpStatus.OK);
     }
 
     private String getClientIp(HttpServletRequest request) {
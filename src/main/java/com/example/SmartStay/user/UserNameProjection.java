@@ -0,0 +1,12 @@
+package com.example.SmartStay.user;
+
+public interface UserNameProjection {
+
+    String getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    boolean getIsConfirmed();
+}
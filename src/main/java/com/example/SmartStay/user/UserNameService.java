@@ -0,0 +1,101 @@
+package com.example.SmartStay.user;
+
+import com.example.SmartStay.review.ReviewService;
+import com.example.SmartStay.websocket.BroadcastEvent;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// public display names of the review authors
+@Service
+public class UserNameService {
+
+    private static final long TTL = TimeUnit.MINUTES.toMillis(1);
+    private static final int MAX_NAMES = 10_000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    // user id -> name, or no name if the user is not visible
+    private final ConcurrentHashMap<String, CachedName> names = new ConcurrentHashMap<>();
+
+    // names of the visible users, with one query for the users and one for their reviews
+    public Map<String, String> getNames(Collection<String> ids) {
+        long now = System.currentTimeMillis();
+        Map<String, String> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (String id : ids) {
+            CachedName cached = names.get(id);
+            if (cached != null && cached.expiresAt > now) {
+                if (cached.name != null) {
+                    result.put(id, cached.name);
+                }
+            } else if (ObjectId.isValid(id)) {
+                missing.add(id);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        if (names.size() > MAX_NAMES) {
+            names.clear();
+        }
+
+        // only users that have at least one review are visible
+        // with this, we protect the user's privacy if they have not made any reviews
+        // and someone tries to get their name
+        Set<String> reviewers = reviewService.getUserIdsWithReviews(missing);
+        Map<String, String> found = new HashMap<>();
+        for (UserNameProjection user : userRepository.findNamesByIdIn(missing.stream().map(ObjectId::new).toList())) {
+            if (user.getIsConfirmed() && reviewers.contains(user.getId())) {
+                found.put(user.getId(), user.getFirstName() + " " + user.getLastName());
+            }
+        }
+
+        for (String id : missing) {
+            String name = found.get(id);
+            names.put(id, new CachedName(name, now + TTL));
+            if (name != null) {
+                result.put(id, name);
+            }
+        }
+        return result;
+    }
+
+    public Optional<String> getName(String id) {
+        return Optional.ofNullable(getNames(List.of(id)).get(id));
+    }
+
+    public void evict(String id) {
+        names.remove(id);
+    }
+
+    // a first review makes the user visible
+    @EventListener
+    public void onBroadcastEvent(BroadcastEvent event) {
+        if (event.getEvent().equals("createReview") && event.getData().size() > 1) {
+            evict(String.valueOf(event.getData().get(1)));
+        }
+    }
+
+    private static class CachedName {
+        private final String name;
+        private final long expiresAt;
+
+        CachedName(String name, long expiresAt) {
+            this.name = name;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -2,12 +2,17 @@ package com.example.SmartStay.user;
 
 import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface UserRepository extends MongoRepository<User, ObjectId> {
     List<UserProjection> findAllProjectedBy();
+
+    @Query(value = "{ '_id': { $in: ?0 } }", fields = "{ 'firstName': 1, 'lastName': 1, 'isConfirmed': 1 }")
+    List<UserNameProjection> findNamesByIdIn(Collection<ObjectId> ids);
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.example.SmartStay.util;
+
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Lease held by one instance at a time, with the same upsert as the migration lock. The holder renews it
+ * on every acquire, another instance takes it over once the holder stops renewing and it expires.
+ */
+public class MongoLease {
+
+    private static final String COLLECTION = "leases";
+
+    private final MongoTemplate mongoTemplate;
+    private final String id;
+    private final long timeoutMillis;
+    private final String owner = new ObjectId().toHexString();
+
+    public MongoLease(MongoTemplate mongoTemplate, String id, long timeoutMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.id = id;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    // true if this instance holds the lease for the next timeoutMillis
+    public boolean acquire() {
+        long now = System.currentTimeMillis();
+        // only matches an expired lease or our own, if another instance holds it the upsert fails with a duplicate key
+        Query query = Query.query(Criteria.where("_id").is(id)
+                .orOperator(Criteria.where("expiresAt").lt(now), Criteria.where("owner").is(owner)));
+        Update update = new Update().set("owner", owner).set("expiresAt", now + timeoutMillis);
+        try {
+            mongoTemplate.upsert(query, update, COLLECTION);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.SmartStay.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public class TextUtil {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private TextUtil() {
+    }
+
+    // lower case without accents, words separated by one space: "São Paulo!" -> "sao paulo"
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String folded = MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+        return SEPARATORS.matcher(folded).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.SmartStay.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Keeps the content of the resolved static files in memory, so they are read from disk once.
+ * Placed after the caching resolver, which keeps the returned resource per path and encoding,
+ * and before the encoded resolver, so the .br and .gz variants are kept as well.
+ */
+public class InMemoryResourceResolver extends AbstractResourceResolver {
+
+    // bigger files are streamed from disk
+    private final long maxFileSize;
+
+    public InMemoryResourceResolver(long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+    }
+
+    @Override
+    protected Resource resolveResourceInternal(HttpServletRequest request, String requestPath,
+                                               List<? extends Resource> locations, ResourceResolverChain chain) {
+        Resource resource = chain.resolveResource(request, requestPath, locations);
+        if (resource == null) {
+            return null;
+        }
+
+        try {
+            if (resource.contentLength() > maxFileSize) {
+                return resource;
+            }
+            return new InMemoryResource(resource, resource.getContentAsByteArray());
+        } catch (IOException e) {
+            return resource;
+        }
+    }
+
+    @Override
+    protected String resolveUrlPathInternal(String resourceUrlPath, List<? extends Resource> locations, ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourceUrlPath, locations);
+    }
+
+    // etag of the resources kept in memory, the others use last modified
+    public static String etag(Resource resource) {
+        return resource instanceof InMemoryResource inMemoryResource ? inMemoryResource.etag : null;
+    }
+
+    private static class InMemoryResource extends ByteArrayResource implements HttpResource {
+        private final String filename;
+        private final long lastModified;
+        private final HttpHeaders headers;
+        private final String etag;
+
+        InMemoryResource(Resource resource, byte[] content) throws IOException {
+            super(content);
+            this.filename = resource.getFilename();
+            this.lastModified = resource.lastModified();
+            // keeps Content-Encoding and Vary of the precompressed variants
+            this.headers = resource instanceof HttpResource httpResource ? httpResource.getResponseHeaders() : new HttpHeaders();
+            this.etag = DigestUtils.md5DigestAsHex(content);
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public long lastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            return headers;
+        }
+    }
+}
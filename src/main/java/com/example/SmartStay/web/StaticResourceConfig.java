@@ -0,0 +1,46 @@
+package com.example.SmartStay.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the react build, replacing the default resource handling (spring.web.resources.add-mappings=false).
+ * Files under /static/ have the content hash in their name, so they never change and are cached forever.
+ * The rest (index.html, manifest, icons) must be revalidated, with the ETag of the cached content.
+ * Precompressed .br and .gz files created by scripts/compress-assets.sh are sent when the browser accepts them.
+ */
+@Configuration
+public class StaticResourceConfig implements WebMvcConfigurer {
+
+    @Value("${spring.web.resources.static-locations}")
+    private String[] locations;
+
+    @Value("${smartstay.web.max-cached-file-size:1048576}")
+    private long maxCachedFileSize;
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/static/**")
+                .addResourceLocations(Arrays.stream(locations).map(location -> location + "static/").toArray(String[]::new))
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .setEtagGenerator(InMemoryResourceResolver::etag)
+                .resourceChain(true)
+                .addResolver(new InMemoryResourceResolver(maxCachedFileSize))
+                .addResolver(new EncodedResourceResolver());
+
+        registry.addResourceHandler("/**")
+                .addResourceLocations(locations)
+                .setCacheControl(CacheControl.noCache())
+                .setEtagGenerator(InMemoryResourceResolver::etag)
+                .resourceChain(true)
+                .addResolver(new InMemoryResourceResolver(maxCachedFileSize))
+                .addResolver(new EncodedResourceResolver());
+    }
+}
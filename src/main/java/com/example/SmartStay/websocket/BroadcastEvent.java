@@ -0,0 +1,20 @@
+package com.example.SmartStay.websocket;
+
+import lombok.Getter;
+
+import java.util.List;
+
+// published in the application context for every websocket event, so local caches can react to it
+@Getter
+public class BroadcastEvent {
+    private final String event;
+    private final List<Object> data;
+    // true if the event was sent by another node
+    private final boolean remote;
+
+    public BroadcastEvent(String event, List<Object> data, boolean remote) {
+        this.event = event;
+        this.data = data;
+        this.remote = remote;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.SmartStay.websocket;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class Change {
+    private final long seq;
+    private final String event;
+    private final List<Object> data;
+
+    public Change(long seq, String event, List<Object> data) {
+        this.seq = seq;
+        this.event = event;
+        this.data = data;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.SmartStay.websocket;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeController {
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private EventBus eventBus;
+
+    // events after since, the seq of the last websocket message the client received
+    @GetMapping
+    public ResponseEntity<ChangePage> getChanges(@RequestParam long since) {
+        return new ResponseEntity<>(changeLog.getChangesSince(since, eventBus.getSequence()), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.SmartStay.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// last websocket events by sequence, so a reconnecting client only gets what it missed
+@Component
+public class ChangeLog {
+
+    // events older than since that are checked for a late arrival
+    private static final int REORDER_WINDOW = 1_000;
+
+    private final ConcurrentSkipListMap<Long, Recorded> changes = new ConcurrentSkipListMap<>();
+    private final int maxChanges;
+    // order in which the events reached this node, sequences of different nodes can arrive out of order
+    private final AtomicLong arrivals = new AtomicLong();
+
+    private record Recorded(Change change, long arrival) {
+    }
+
+    public ChangeLog(@Value("${smartstay.changes.max:10000}") int maxChanges) {
+        this.maxChanges = maxChanges;
+    }
+
+    public void record(long seq, String event, List<Object> data) {
+        // events that could not get a sequence
+        if (seq <= 0) {
+            return;
+        }
+        changes.put(seq, new Recorded(new Change(seq, event, data), arrivals.incrementAndGet()));
+        while (changes.size() > maxChanges) {
+            changes.pollFirstEntry();
+        }
+    }
+
+    // latest is the current sequence of the event bus
+    public ChangePage getChangesSince(long since, long latest) {
+        Map.Entry<Long, Recorded> oldest = changes.firstEntry();
+
+        // the sequence restarted (single node bus) or the log does not go back that far
+        boolean complete = since <= latest && (since == latest || (oldest != null && oldest.getKey() <= since + 1));
+        if (!complete) {
+            return new ChangePage(List.of(), latest, false);
+        }
+
+        List<Change> result = new ArrayList<>();
+
+        // events with a lower sequence that reached this node after since, the client was sent since first
+        Recorded last = changes.get(since);
+        if (last != null) {
+            int checked = 0;
+            for (Recorded recorded : changes.headMap(since, false).descendingMap().values()) {
+                if (++checked > REORDER_WINDOW) {
+                    break;
+                }
+                if (recorded.arrival() > last.arrival()) {
+                    result.add(0, recorded.change());
+                }
+            }
+        }
+
+        // a missing sequence is an event not relayed yet or lost, the client cannot catch up with the log
+        long expected = since + 1;
+        for (Recorded recorded : changes.tailMap(since, false).values()) {
+            if (recorded.change().getSeq() != expected) {
+                return new ChangePage(List.of(), latest, false);
+            }
+            result.add(recorded.change());
+            expected++;
+        }
+        if (expected <= latest) {
+            return new ChangePage(List.of(), latest, false);
+        }
+        return new ChangePage(result, latest, true);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.SmartStay.websocket;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class ChangePage {
+    private final List<Change> changes;
+    // sequence of the last event, to use as since in the next request
+    private final long latest;
+    // false if some events after since are no longer or not yet in the log, the client has to reload everything
+    private final boolean complete;
+
+    public ChangePage(List<Change> changes, long latest, boolean complete) {
+        this.changes = changes;
+        this.latest = latest;
+        this.complete = complete;
+    }
+}
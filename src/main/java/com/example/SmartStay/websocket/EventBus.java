@@ -0,0 +1,17 @@
+package com.example.SmartStay.websocket;
+
+import java.util.List;
+
+/**
+ * Sends the websocket events to every node of the cluster.
+ * Each node hands the events to its {@link EventDispatcher}, which sends them to the
+ * sessions connected to that node.
+ */
+public interface EventBus {
+
+    // assigns the next sequence number to the event
+    void publish(String event, List<Object> data);
+
+    // sequence of the last published event
+    long getSequence();
+}
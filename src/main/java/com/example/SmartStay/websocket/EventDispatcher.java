@@ -0,0 +1,30 @@
+package com.example.SmartStay.websocket;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class EventDispatcher {
+
+    private final WebSocketHandler webSocketHandler;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final ChangeLog changeLog;
+
+    @Autowired
+    public EventDispatcher(WebSocketHandler webSocketHandler, ApplicationEventPublisher applicationEventPublisher, ChangeLog changeLog) {
+        this.webSocketHandler = webSocketHandler;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.changeLog = changeLog;
+    }
+
+    // delivers an event to this node: change log and local listeners first, then the connected sessions
+    public void dispatch(long seq, String event, List<Object> data, boolean remote) {
+        changeLog.record(seq, event, data);
+        applicationEventPublisher.publishEvent(new BroadcastEvent(event, data, remote));
+        // sent even without a sequence (seq 0), it is not in the change log so the client cannot get it later
+        webSocketHandler.sendMessageToAllClients(seq, event, data);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.SmartStay.websocket;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// single node, events only reach the sessions of this instance
+@Component
+@ConditionalOnProperty(name = "smartstay.events.bus", havingValue = "local")
+public class LocalEventBus implements EventBus {
+
+    private final EventDispatcher eventDispatcher;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Autowired
+    public LocalEventBus(EventDispatcher eventDispatcher) {
+        this.eventDispatcher = eventDispatcher;
+    }
+
+    @Override
+    public void publish(String event, List<Object> data) {
+        eventDispatcher.dispatch(sequence.incrementAndGet(), event, data, false);
+    }
+
+    @Override
+    public long getSequence() {
+        return sequence.get();
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.SmartStay.websocket;
+
+import com.mongodb.CursorType;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event bus over a capped collection. Every node inserts its events and follows the collection
+ * with a tailable cursor, relaying the events of the other nodes to its own sessions.
+ * The capped collection keeps insertion order and there is a single tailing thread per node,
+ * so events of the same topic are delivered in the order they were inserted.
+ * Sequence numbers come from a shared counter, so a client can ask any node for the changes it missed.
+ */
+@Component
+@ConditionalOnProperty(name = "smartstay.events.bus", havingValue = "mongo", matchIfMissing = true)
+public class MongoEventBus implements EventBus {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoEventBus.class);
+
+    static final String COLLECTION = "events";
+    static final String COUNTERS_COLLECTION = "counters";
+
+    // when the cursor is reopened it goes back this far, ids of different nodes are not strictly ordered
+    private static final long RESUME_OVERLAP_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    // ids of the last relayed events, used to skip the events read again after reopening the cursor
+    private static final int SEEN_EVENTS = 10_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final EventDispatcher eventDispatcher;
+    private final long collectionSize;
+    private final long maxEvents;
+    private final ChangeLog changeLog;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final String nodeId = new ObjectId().toHexString();
+    private final Set<ObjectId> seen = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ObjectId, Boolean> eldest) {
+            return size() > SEEN_EVENTS;
+        }
+    });
+
+    private volatile boolean running;
+    private Thread tailThread;
+    private ObjectId lastId;
+
+    @Autowired
+    public MongoEventBus(MongoTemplate mongoTemplate, EventDispatcher eventDispatcher, ChangeLog changeLog,
+                         @Value("${smartstay.events.collection-size:16777216}") long collectionSize,
+                         @Value("${smartstay.events.max-events:10000}") long maxEvents) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventDispatcher = eventDispatcher;
+        this.collectionSize = collectionSize;
+        this.maxEvents = maxEvents;
+        this.changeLog = changeLog;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!mongoTemplate.collectionExists(COLLECTION)) {
+            try {
+                mongoTemplate.createCollection(COLLECTION, CollectionOptions.empty().capped().size(collectionSize).maxDocuments(maxEvents));
+            } catch (Exception e) {
+                // created by another node at the same time
+                LOGGER.info("Events collection already created: " + e.getMessage());
+            }
+        }
+
+        // only events published after this node started are relayed, the older ones fill the change log
+        lastId = new ObjectId();
+        loadChangeLog();
+        running = true;
+        tailThread = new Thread(this::tail, "event-bus-tail");
+        tailThread.setDaemon(true);
+        tailThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        tailThread.interrupt();
+        tailThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @Override
+    public void publish(String event, List<Object> data) {
+        long seq = 0;
+        try {
+            seq = nextSequence();
+            Document document = new Document("_id", new ObjectId())
+                    .append("node", nodeId)
+                    .append("seq", seq)
+                    .append("event", event)
+                    .append("data", data);
+            mongoTemplate.getCollection(COLLECTION).insertOne(document);
+        } catch (Exception e) {
+            LOGGER.error("Could not publish event " + event + " to the other nodes", e);
+        }
+
+        // the sessions of this node get the event right away, the tailing thread skips it;
+        // without a sequence (counter not reachable) they get it with seq 0
+        eventDispatcher.dispatch(seq, event, data, false);
+    }
+
+    @Override
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    private long nextSequence() {
+        Document counter = mongoTemplate.getCollection(COUNTERS_COLLECTION).findOneAndUpdate(
+                Filters.eq("_id", COLLECTION),
+                Updates.inc("seq", 1L),
+                new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+        long seq = counter.get("seq", Number.class).longValue();
+        sequence.accumulateAndGet(seq, Math::max);
+        return seq;
+    }
+
+    // the capped collection already holds the last events, a restarted node can answer delta requests right away
+    @SuppressWarnings("unchecked")
+    private void loadChangeLog() {
+        try {
+            for (Document document : mongoTemplate.getCollection(COLLECTION).find(Filters.exists("seq"))) {
+                ObjectId id = document.getObjectId("_id");
+                long seq = document.get("seq", Number.class).longValue();
+                seen.add(id);
+                sequence.accumulateAndGet(seq, Math::max);
+                changeLog.record(seq, document.getString("event"), (List<Object>) document.get("data"));
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Could not load the change log: " + e.getMessage());
+        }
+    }
+
+    private void tail() {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(COLLECTION);
+        while (running) {
+            ObjectId from = ObjectId.getSmallestWithDate(new Date(lastId.getDate().getTime() - RESUME_OVERLAP_MILLIS));
+            try (MongoCursor<Document> cursor = collection.find(Filters.gt("_id", from))
+                    .cursorType(CursorType.TailableAwait)
+                    .maxAwaitTime(1, TimeUnit.SECONDS)
+                    .noCursorTimeout(true)
+                    .iterator()) {
+                while (running) {
+                    Document document = cursor.tryNext();
+                    if (document != null) {
+                        relay(document);
+                    } else if (cursor.getServerCursor() == null) {
+                        // a tailable cursor over an empty collection is closed by the server
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                if (running) {
+                    LOGGER.warn("Event bus cursor failed, reopening: " + e.getMessage());
+                }
+            }
+
+            sleep();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void relay(Document document) {
+        ObjectId id = document.getObjectId("_id");
+        if (!seen.add(id)) {
+            return;
+        }
+        if (id.compareTo(lastId) > 0) {
+            lastId = id;
+        }
+        if (nodeId.equals(document.getString("node"))) {
+            return;
+        }
+
+        Number seq = document.get("seq", Number.class);
+        long eventSeq = seq != null ? seq.longValue() : 0;
+        sequence.accumulateAndGet(eventSeq, Math::max);
+        try {
+            eventDispatcher.dispatch(eventSeq, document.getString("event"), (List<Object>) document.get("data"), true);
+        } catch (Exception e) {
+            LOGGER.error("Could not relay event " + document.getString("event"), e);
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
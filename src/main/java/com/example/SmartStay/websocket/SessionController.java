@@ -0,0 +1,30 @@
+package com.example.SmartStay.websocket;
+
+import com.example.SmartStay.user.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/sessions")
+public class SessionController {
+
+    @Autowired
+    private WebSocketHandler webSocketHandler;
+
+    @Autowired
+    private UserService userService;
+
+    // live websocket sessions and why the others were closed
+    @GetMapping("/stats")
+    public ResponseEntity<SessionStats> getStats(@RequestHeader("Authorization") String token) {
+        if (!userService.isAdmin(token)) {
+            return new ResponseEntity<>(null, HttpStatus.UNAUTHORIZED);
+        }
+        return new ResponseEntity<>(webSocketHandler.getStats(), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.SmartStay.websocket;
+
+import lombok.Getter;
+
+@Getter
+public class SessionStats {
+    // open sessions right now
+    private int sessions;
+    private int peak;
+    // addresses with at least one open session
+    private int ips;
+    // closed by the caps when connecting
+    private long rejected;
+    // closed by the heartbeat, no pong in time
+    private long evicted;
+    // closed because the send buffer or send time limit was exceeded
+    private long overflowed;
+
+    public SessionStats(int sessions, int peak, int ips, long rejected, long evicted, long overflowed) {
+        this.sessions = sessions;
+        this.peak = peak;
+        this.ips = ips;
+        this.rejected = rejected;
+        this.evicted = evicted;
+        this.overflowed = overflowed;
+    }
+}
@@ -1,15 +1,20 @@
 package com.example.SmartStay.websocket;
 
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
 
 @Configuration
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
 
+    // clients only answer pings, tomcat allocates the receive buffers of every session with this size
+    private static final int MAX_MESSAGE_SIZE = 1024;
+
     private final WebSocketHandler webSocketHandler;
 
     @Autowired
@@ -22,4 +27,13 @@ public class WebSocketConfig implements WebSocketConfigurer {
         registry.addHandler(webSocketHandler, "/api/ws").setAllowedOrigins("*");
     }
 
-}
\ No newline at end of file
+    // idle sessions are closed by the heartbeat of WebSocketHandler, not by a container timeout
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(MAX_MESSAGE_SIZE);
+        container.setMaxBinaryMessageBufferSize(MAX_MESSAGE_SIZE);
+        return container;
+    }
+
+}
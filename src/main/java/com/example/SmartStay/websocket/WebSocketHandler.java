@@ -2,67 +2,239 @@ package com.example.SmartStay.websocket;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Getter;
 import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Component;
-import org.springframework.web.socket.CloseStatus;
-import org.springframework.web.socket.TextMessage;
-import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.*;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Connected browsers. Sessions are pinged every smartstay.ws.ping-interval from a dedicated thread and closed
+ * after smartstay.ws.max-missed-pings pings in a row without a pong, so half-open connections do not stay
+ * forever. Counting pings instead of time means a delayed heartbeat never evicts healthy sessions.
+ * Connections over the global or per ip caps are closed right away, and clients that do not read fast enough
+ * are closed when their send buffer is full.
+ */
 @Component
 public class WebSocketHandler extends TextWebSocketHandler {
 
-    private final List<WebSocketSession> sessions = new ArrayList<>();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebSocketHandler.class);
+
+    // the same mapper as the http responses
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${smartstay.ws.max-sessions:50000}")
+    private int maxSessions;
+
+    @Value("${smartstay.ws.max-sessions-per-ip:20}")
+    private int maxSessionsPerIp;
+
+    @Value("${smartstay.ws.ping-interval:PT25S}")
+    private Duration pingInterval;
+
+    @Value("${smartstay.ws.max-missed-pings:2}")
+    private int maxMissedPings;
+
+    @Value("${smartstay.ws.send-time-limit:PT10S}")
+    private Duration sendTimeLimit;
+
+    @Value("${smartstay.ws.send-buffer-limit:65536}")
+    private int sendBufferLimit;
+
+    // session id -> client, added and removed by the connection threads while events are sent from the event bus
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+    private final Map<String, Integer> sessionsPerIp = new ConcurrentHashMap<>();
+    // reserved before the session is added, the caps are never exceeded
+    private final AtomicInteger open = new AtomicInteger();
+
+    private final AtomicInteger peak = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+
+    // not the shared scheduler, a long scheduled task there would delay every ping
+    private ThreadPoolTaskScheduler heartbeatScheduler;
+
+    private static final class Client {
+        // sends from several threads are queued, slow clients are closed instead of blocking the others
+        private final WebSocketSession session;
+        private final String ip;
+        // pings sent since the last message from the client
+        private final AtomicInteger missedPings = new AtomicInteger();
+
+        private Client(WebSocketSession session, String ip) {
+            this.session = session;
+            this.ip = ip;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        heartbeatScheduler = new ThreadPoolTaskScheduler();
+        heartbeatScheduler.setPoolSize(1);
+        heartbeatScheduler.setThreadNamePrefix("ws-heartbeat-");
+        heartbeatScheduler.setDaemon(true);
+        heartbeatScheduler.initialize();
+        heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat, Instant.now().plus(pingInterval), pingInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeatScheduler.shutdown();
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.add(session);
+        String ip = getClientIp(session);
+        int sessions = open.incrementAndGet();
+        int ipSessions = sessionsPerIp.merge(ip, 1, Integer::sum);
+        if (sessions > maxSessions || ipSessions > maxSessionsPerIp) {
+            open.decrementAndGet();
+            release(ip);
+            rejected.incrementAndGet();
+            // the client reconnects later and asks /api/changes for what it missed
+            session.close(CloseStatus.SERVICE_OVERLOAD);
+            return;
+        }
+
+        peak.accumulateAndGet(sessions, Math::max);
+        clients.put(session.getId(), new Client(new ConcurrentWebSocketSessionDecorator(session,
+                (int) sendTimeLimit.toMillis(), sendBufferLimit, ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE), ip));
     }
 
     @Override
     public void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        seen(session);
+    }
+
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) throws Exception {
+        seen(session);
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        sessions.remove(session);
+        remove(session.getId());
     }
 
-    public void sendMessageToAllClients(String event, List<Object> data) {
+    public void sendMessageToAllClients(long seq, String event, List<Object> data) {
+        TextMessage message;
         try {
-            String message = createMessage(event, data);
-            for (WebSocketSession session : sessions) {
-                if (session != null && session.isOpen()) {
-                    session.sendMessage(new TextMessage(message));
-                }
-            }
+            // serialized once for all the sessions
+            message = new TextMessage(createMessage(seq, event, data));
         } catch (JsonProcessingException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.error("Could not serialize the {} event", event, e);
+            return;
+        }
+
+        for (Client client : clients.values()) {
+            send(client, message);
         }
     }
 
-    private String createMessage(String event, List<Object> data) throws JsonProcessingException {
-        CustomMessage customMessage = new CustomMessage(event, data);
+    // pings every session and closes the ones that did not answer the previous pings
+    void heartbeat() {
+        for (Client client : clients.values()) {
+            if (!client.session.isOpen() || client.missedPings.getAndIncrement() >= maxMissedPings) {
+                evicted.incrementAndGet();
+                close(client, CloseStatus.SESSION_NOT_RELIABLE);
+            } else {
+                send(client, new PingMessage());
+            }
+        }
+    }
+
+    public SessionStats getStats() {
+        return new SessionStats(open.get(), peak.get(), sessionsPerIp.size(), rejected.get(), evicted.get(), overflowed.get());
+    }
+
+    private void send(Client client, WebSocketMessage<?> message) {
+        try {
+            client.session.sendMessage(message);
+        } catch (SessionLimitExceededException e) {
+            // too many messages waiting or a send blocked for longer than the limit
+            overflowed.incrementAndGet();
+            close(client, CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException | IllegalStateException e) {
+            // closed while sending, afterConnectionClosed may not be called for a broken connection
+            close(client, CloseStatus.SESSION_NOT_RELIABLE);
+        }
+    }
+
+    private void close(Client client, CloseStatus status) {
+        remove(client.session.getId());
+        try {
+            client.session.close(status);
+        } catch (IOException | IllegalStateException e) {
+            // already closed by the other side
+        }
+    }
+
+    private void seen(WebSocketSession session) {
+        Client client = clients.get(session.getId());
+        if (client != null) {
+            client.missedPings.set(0);
+        }
+    }
+
+    // only the first call for a session releases its place
+    private void remove(String sessionId) {
+        Client client = clients.remove(sessionId);
+        if (client != null) {
+            open.decrementAndGet();
+            release(client.ip);
+        }
+    }
+
+    private void release(String ip) {
+        sessionsPerIp.computeIfPresent(ip, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    // the address of the proxy is replaced with the client address by server.forward-headers-strategy,
+    // only for trusted (internal) proxies, so a client cannot pick its address with a header
+    private static String getClientIp(WebSocketSession session) {
+        InetSocketAddress address = session.getRemoteAddress();
+        return address == null ? "unknown" : address.getHostString();
+    }
+
+    private String createMessage(long seq, String event, List<Object> data) throws JsonProcessingException {
+        CustomMessage customMessage = new CustomMessage(seq, event, data);
         return objectMapper.writeValueAsString(customMessage);
     }
 
     @Setter
     @Getter
     private static class CustomMessage {
+        // to ask /api/changes for the events missed while disconnected,
+        // 0 if the event got no sequence and is not kept as the last one received
+        private long seq;
         private String event;
         private List<Object> data;
 
-        public CustomMessage(String event, List<Object> data) {
+        public CustomMessage(long seq, String event, List<Object> data) {
+            this.seq = seq;
             this.event = event;
             this.data = data;
         }
     }
-}
\ No newline at end of file
+}
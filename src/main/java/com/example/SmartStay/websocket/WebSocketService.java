@@ -8,14 +8,15 @@ import java.util.List;
 @Service
 public class WebSocketService {
 
-    private final WebSocketHandler webSocketHandler;
+    private final EventBus eventBus;
 
     @Autowired
-    public WebSocketService(WebSocketHandler webSocketHandler) {
-        this.webSocketHandler = webSocketHandler;
+    public WebSocketService(EventBus eventBus) {
+        this.eventBus = eventBus;
     }
 
+    // sends the event to the sessions of every node
     public void sendMessage(String eventName, List<Object> arguments) {
-        webSocketHandler.sendMessageToAllClients(eventName, arguments);
+        eventBus.publish(eventName, arguments);
     }
 }
\ No newline at end of file
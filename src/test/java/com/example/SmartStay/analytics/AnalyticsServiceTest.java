@@ -0,0 +1,67 @@
+package com.example.SmartStay.analytics;
+
+import com.example.SmartStay.reservation.AvailabilityService;
+import com.example.SmartStay.reservation.Reservation;
+import com.example.SmartStay.review.Review;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalyticsServiceTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final String CITY = "Spain/A:Coruña";
+
+    @Test
+    void parsesIdsWithColonsInTheKey() {
+        AnalyticsService.RollupId id = AnalyticsService.RollupId.parse("city:" + CITY + ":19000");
+
+        assertEquals(AnalyticsService.CITY, id.scope());
+        assertEquals(CITY, id.key());
+        assertEquals(19000, id.day());
+    }
+
+    @Test
+    void countsTheBookingOnItsDayAndEachNightOnItsOwn() {
+        long booked = 1_700_000_000_000L;
+        Reservation reservation = new Reservation(new ObjectId(new Date(booked)).toHexString(), "u1", "p1",
+                booked + 10 * DAY, booked + 12 * DAY);
+        Map<String, long[]> counters = new HashMap<>();
+
+        AnalyticsService.addReservation(counters, reservation, CITY);
+
+        long bookedDay = AvailabilityService.toEpochDay(booked);
+        long firstNight = AvailabilityService.toEpochDay(reservation.getStart());
+        long lastNight = AvailabilityService.toEpochDay(reservation.getEnd()) - 1;
+        // nightsBooked, bookings, ratingSum, ratingCount
+        assertArrayEquals(new long[]{0, 1, 0, 0}, counters.get("product:p1:" + bookedDay));
+        assertArrayEquals(new long[]{0, 1, 0, 0}, counters.get("city:" + CITY + ":" + bookedDay));
+        for (long day = firstNight; day <= lastNight; day++) {
+            assertArrayEquals(new long[]{1, 0, 0, 0}, counters.get("product:p1:" + day));
+            assertArrayEquals(new long[]{1, 0, 0, 0}, counters.get("city:" + CITY + ":" + day));
+        }
+        assertEquals(2 * (lastNight - firstNight + 2), counters.size());
+    }
+
+    @Test
+    void addsRatingsOfTheSameDay() {
+        long created = 1_700_000_000_000L;
+        Map<String, long[]> counters = new HashMap<>();
+        for (int rating : new int[]{5, 3}) {
+            Review review = new Review("p1", "u" + rating, rating, "");
+            review.setId(new ObjectId(new Date(created)).toHexString());
+            AnalyticsService.addReview(counters, review, CITY);
+        }
+
+        long day = AvailabilityService.toEpochDay(created);
+        assertArrayEquals(new long[]{0, 0, 8, 2}, counters.get("product:p1:" + day));
+        assertArrayEquals(new long[]{0, 0, 8, 2}, counters.get("city:" + CITY + ":" + day));
+        assertEquals(AnalyticsService.RollupId.parse("city:" + CITY + ":" + day), new AnalyticsService.RollupId("city", CITY, day));
+    }
+}
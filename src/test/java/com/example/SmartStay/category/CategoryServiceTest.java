@@ -0,0 +1,58 @@
+package com.example.SmartStay.category;
+
+import com.example.SmartStay.websocket.BroadcastEvent;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CategoryServiceTest {
+
+    private CategoryRepository categoryRepository;
+    private CategoryService categoryService;
+
+    @BeforeEach
+    void setUp() {
+        categoryRepository = mock(CategoryRepository.class);
+        categoryService = new CategoryService();
+        ReflectionTestUtils.setField(categoryService, "categoryRepository", categoryRepository);
+    }
+
+    private Category category(String name) {
+        Category category = new Category(new ObjectId().toHexString(), name, null, null, Set.of());
+        when(categoryRepository.findById(new ObjectId(category.getId()))).thenReturn(Optional.of(category));
+        return category;
+    }
+
+    @Test
+    void findsCapitalisedAndAccentedNamesByTheFoldedSearchWord() {
+        Category hotel = category("Hotel");
+        Category cabanas = category("Cabañas");
+        when(categoryRepository.findAll()).thenReturn(List.of(hotel, cabanas));
+
+        assertEquals(Optional.of(hotel), categoryService.getCategoryByFoldedName("hotel"));
+        assertEquals(Optional.of(cabanas), categoryService.getCategoryByFoldedName("cabanas"));
+        assertEquals(Optional.empty(), categoryService.getCategoryByFoldedName("hostel"));
+    }
+
+    @Test
+    void readsTheNamesAgainAfterACategoryEvent() {
+        Category hotel = category("Hotel");
+        when(categoryRepository.findAll()).thenReturn(List.of(hotel));
+        assertEquals(Optional.of(hotel), categoryService.getCategoryByFoldedName("hotel"));
+
+        hotel.setName("Hostel");
+        categoryService.onBroadcastEvent(new BroadcastEvent("updateCategory", List.of(hotel.getId()), false));
+
+        assertEquals(Optional.empty(), categoryService.getCategoryByFoldedName("hotel"));
+        assertEquals(Optional.of(hotel), categoryService.getCategoryByFoldedName("hostel"));
+        verify(categoryRepository, times(2)).findAll();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.SmartStay.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageServiceTest {
+
+    // vertical stripes of the colors, from left to right
+    private static BufferedImage stripes(int width, int height, Color... colors) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        for (int i = 0; i < colors.length; i++) {
+            graphics.setColor(colors[i]);
+            graphics.fillRect(width * i / colors.length, 0, width / colors.length + 1, height);
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    private static Color at(BufferedImage image, int x, int y) {
+        return new Color(image.getRGB(x, y));
+    }
+
+    @Test
+    void coversTheSizeAndCropsTheSidesOfAWideImage() {
+        // 2:1 scaled to 720x360, 120 pixels cropped on each side
+        BufferedImage variant = ImageService.cover(stripes(1000, 500, Color.RED, Color.GREEN, Color.BLUE), new Dimension(480, 360));
+
+        assertEquals(480, variant.getWidth());
+        assertEquals(360, variant.getHeight());
+        assertEquals(Color.RED, at(variant, 5, 180));
+        assertEquals(Color.GREEN, at(variant, 240, 180));
+        assertEquals(Color.BLUE, at(variant, 474, 180));
+    }
+
+    @Test
+    void cropsTheTopAndBottomOfATallImage() {
+        BufferedImage tall = new BufferedImage(100, 400, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = tall.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, 100, 100);
+        graphics.setColor(Color.GREEN);
+        graphics.fillRect(0, 100, 100, 200);
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(0, 300, 100, 100);
+        graphics.dispose();
+
+        // scaled to 160x640, only the middle 120 rows are kept
+        BufferedImage variant = ImageService.cover(tall, new Dimension(160, 120));
+
+        assertEquals(160, variant.getWidth());
+        assertEquals(120, variant.getHeight());
+        assertEquals(Color.GREEN, at(variant, 80, 2));
+        assertEquals(Color.GREEN, at(variant, 80, 117));
+    }
+
+    @Test
+    void putsTransparentPixelsOnWhite() {
+        BufferedImage transparent = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+
+        BufferedImage variant = ImageService.cover(transparent, new Dimension(160, 120));
+
+        assertEquals(Color.WHITE, at(variant, 80, 60));
+    }
+}
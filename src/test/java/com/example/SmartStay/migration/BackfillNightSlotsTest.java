@@ -0,0 +1,94 @@
+package com.example.SmartStay.migration;
+
+import com.example.SmartStay.reservation.AvailabilityService;
+import com.example.SmartStay.reservation.NightSlot;
+import com.example.SmartStay.reservation.Reservation;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BackfillNightSlotsTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    // bulk insert into a unique _id, like the night_slots collection
+    private static class SlotBulk {
+        private final Set<String> stored;
+        private final List<NightSlot> pending = new ArrayList<>();
+        private final int errorCode;
+
+        SlotBulk(Set<String> stored, int errorCode) {
+            this.stored = stored;
+            this.errorCode = errorCode;
+        }
+
+        BulkOperations create() {
+            BulkOperations bulk = mock(BulkOperations.class);
+            when(bulk.insert(any(Object.class))).thenAnswer(invocation -> {
+                pending.add(invocation.getArgument(0));
+                return bulk;
+            });
+            when(bulk.execute()).thenAnswer(invocation -> {
+                List<BulkWriteError> errors = new ArrayList<>();
+                for (int i = 0; i < pending.size(); i++) {
+                    if (!stored.add(pending.get(i).getId())) {
+                        errors.add(new BulkWriteError(errorCode, "E11000 duplicate key error", new BsonDocument(), i));
+                    }
+                }
+                if (!errors.isEmpty()) {
+                    BulkWriteResult result = BulkWriteResult.acknowledged(pending.size() - errors.size(), 0, 0, 0, List.of(), List.of());
+                    throw new BulkOperationException("Bulk write failed",
+                            new MongoBulkWriteException(result, errors, null, new ServerAddress(), Set.of()));
+                }
+                return null;
+            });
+            return bulk;
+        }
+    }
+
+    private static MongoTemplate mongoTemplate(Set<String> stored, int errorCode, Reservation... reservations) {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.stream(any(Query.class), eq(Reservation.class))).thenAnswer(invocation -> Stream.of(reservations));
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(NightSlot.class)))
+                .thenAnswer(invocation -> new SlotBulk(stored, errorCode).create());
+        return mongoTemplate;
+    }
+
+    @Test
+    void overlappingReservationsKeepTheFirstSlot() {
+        Set<String> stored = new HashSet<>();
+        MongoTemplate mongoTemplate = mongoTemplate(stored, 11000,
+                new Reservation("r1", "u1", "p1", 0L, 3 * DAY),
+                new Reservation("r2", "u2", "p1", 2 * DAY, 4 * DAY));
+
+        new BackfillNightSlots().apply(mongoTemplate);
+        assertEquals(4, stored.size());
+
+        // an interrupted run is applied again over the slots already inserted
+        assertDoesNotThrow(() -> new BackfillNightSlots().apply(mongoTemplate));
+        assertEquals(4, stored.size());
+    }
+
+    @Test
+    void otherWriteErrorsFailTheMigration() {
+        MongoTemplate mongoTemplate = mongoTemplate(new HashSet<>(Set.of(NightSlot.toId("p1", AvailabilityService.toEpochDay(0)))), 121,
+                new Reservation("r1", "u1", "p1", 0L, DAY));
+
+        assertThrows(BulkOperationException.class, () -> new BackfillNightSlots().apply(mongoTemplate));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.SmartStay.product;
+
+import com.example.SmartStay.image.ImageService;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the image url rewrite of ProductRepository.CARD_PROJECTION, evaluated here as mongo would
+class CardProjectionTest {
+
+    private static final Document IMAGE = Document.parse(ProductRepository.CARD_PROJECTION)
+            .get("$project", Document.class).get("images", Document.class)
+            .get("$map", Document.class).get("in", Document.class);
+
+    @SuppressWarnings("unchecked")
+    private static String rewrite(String url) {
+        List<Object> cond = (List<Object>) IMAGE.get("$cond");
+        Document regexMatch = ((Document) cond.get(0)).get("$regexMatch", Document.class);
+        if (!Pattern.compile(regexMatch.getString("regex")).matcher(url).find()) {
+            return url;
+        }
+        List<Object> concat = ((Document) cond.get(1)).getList("$concat", Object.class);
+        return url + concat.get(1);
+    }
+
+    @Test
+    void servesUploadedImagesInTheCardSize() {
+        String url = ImageService.URL_PREFIX + new ObjectId().toHexString();
+
+        assertEquals(url + "?variant=" + ImageService.CARD, rewrite(url));
+    }
+
+    @Test
+    void keepsOtherUrls() {
+        String id = new ObjectId().toHexString();
+
+        assertEquals("https://example.com/room.jpg", rewrite("https://example.com/room.jpg"));
+        assertEquals("https://example.com" + ImageService.URL_PREFIX + id, rewrite("https://example.com" + ImageService.URL_PREFIX + id));
+        assertEquals(ImageService.URL_PREFIX + id + "?variant=thumb", rewrite(ImageService.URL_PREFIX + id + "?variant=thumb"));
+        assertEquals(ImageService.URL_PREFIX + "not-an-id", rewrite(ImageService.URL_PREFIX + "not-an-id"));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.SmartStay.product;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCacheTest {
+
+    @Test
+    void sameWordsInAnyOrderAndCaseShareKey() {
+        assertEquals(SearchCache.normalize("Madrid Spain"), SearchCache.normalize("  spain   MADRID! "));
+    }
+
+    @Test
+    void onlyFirstThreeWordsAreUsed() {
+        assertEquals(List.of("a", "b", "c"), SearchCache.tokens("a b c d"));
+        assertEquals(SearchCache.normalize("c b a"), SearchCache.normalize("a b c d"));
+    }
+
+    @Test
+    void countryCityOrderMatters() {
+        assertNotEquals(SearchCache.normalize("Spain, Madrid"), SearchCache.normalize("Madrid, Spain"));
+        assertEquals(SearchCache.normalize("Spain, Madrid"), SearchCache.normalize("spain ,madrid"));
+    }
+}
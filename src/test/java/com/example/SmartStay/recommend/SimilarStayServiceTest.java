@@ -0,0 +1,39 @@
+package com.example.SmartStay.recommend;
+
+import com.example.SmartStay.reservation.Reservation;
+import com.example.SmartStay.user.User;
+import com.example.SmartStay.websocket.BroadcastEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SimilarStayServiceTest {
+
+    @Test
+    void keepsBookingsMadeDuringARebuild() {
+        SimilarStayService service = new SimilarStayService();
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+
+        User user = new User();
+        user.setId("u1");
+        user.setWishlist(List.of("p1"));
+        // the booking arrives while the users are read
+        when(mongoTemplate.stream(any(Query.class), eq(User.class))).thenAnswer(invocation -> Stream.of(user)
+                .peek(read -> service.onBroadcastEvent(new BroadcastEvent("updateReservation", List.of("p2", "u1"), false))));
+        when(mongoTemplate.stream(any(Query.class), eq(Reservation.class))).thenAnswer(invocation -> Stream.empty());
+
+        service.rebuild();
+
+        assertEquals(List.of("p2"), service.getSimilar("p1", 10));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.SmartStay.recommend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimilarityModelTest {
+
+    @Test
+    void ranksByCoOccurrence() {
+        SimilarityModel model = new SimilarityModel();
+        model.add("u1", "a");
+        model.add("u1", "b");
+        model.add("u2", "a");
+        model.add("u2", "b");
+        model.add("u3", "a");
+        model.add("u3", "c");
+        model.add("u4", "c");
+        model.add("u4", "d");
+        model.complete();
+
+        assertEquals(List.of("b", "c"), model.similar("a", 10));
+        assertEquals(List.of("b"), model.similar("a", 1));
+    }
+
+    @Test
+    void updatesIncrementallyAfterComplete() {
+        SimilarityModel model = new SimilarityModel();
+        model.complete();
+        model.add("u1", "a");
+        model.add("u1", "b");
+        // the same product twice in a basket counts once
+        model.add("u1", "b");
+
+        assertEquals(List.of("b"), model.similar("a", 10));
+        assertEquals(List.of("a"), model.similar("b", 10));
+        model.remove("b");
+        assertTrue(model.similar("a", 10).isEmpty());
+    }
+
+    @Test
+    void mapGrowsWithoutLosingEntries() {
+        IntIntMap map = new IntIntMap();
+        for (int i = 0; i < 1000; i++) {
+            map.addTo(i * 7, i);
+        }
+        map.addTo(14, 5);
+        assertEquals(1000, map.size());
+        assertEquals(7, map.get(14));
+        assertEquals(999, map.get(999 * 7));
+        assertEquals(0, map.get(3));
+    }
+}
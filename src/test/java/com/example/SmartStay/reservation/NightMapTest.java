@@ -0,0 +1,43 @@
+package com.example.SmartStay.reservation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NightMapTest {
+
+    private static final long DAY = NightMap.ORIGIN_DAY + 1000;
+
+    @Test
+    void checkOutDayIsFree() {
+        NightMap nightMap = new NightMap();
+        nightMap.mark(DAY, DAY + 3);
+
+        assertFalse(nightMap.isFree(DAY + 2, DAY + 4));
+        assertTrue(nightMap.isFree(DAY + 3, DAY + 5));
+        assertTrue(nightMap.isFree(DAY - 2, DAY));
+        assertFalse(nightMap.isFree(DAY - 1, DAY + 10));
+    }
+
+    @Test
+    void windowIsRelativeToFirstNight() {
+        NightMap nightMap = new NightMap();
+        nightMap.mark(DAY, DAY + 2);
+        nightMap.mark(DAY + 400, DAY + 401);
+
+        BitSet window = nightMap.window(DAY - 1, 365);
+        assertEquals(2, window.cardinality());
+        assertTrue(window.get(1));
+        assertTrue(window.get(2));
+    }
+
+    @Test
+    void nightsBeforeOriginAreIgnored() {
+        NightMap nightMap = new NightMap();
+        nightMap.mark(NightMap.ORIGIN_DAY - 10, NightMap.ORIGIN_DAY - 5);
+
+        assertTrue(nightMap.isFree(NightMap.ORIGIN_DAY - 10, NightMap.ORIGIN_DAY + 10));
+    }
+}
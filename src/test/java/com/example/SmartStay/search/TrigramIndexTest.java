@@ -0,0 +1,47 @@
+package com.example.SmartStay.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    private final TrigramIndex index = TrigramIndex.build(Map.of(
+            "1", "Hotel Candelaria Bogotá Colombia",
+            "2", "Casa Azul São Paulo Brazil",
+            "3", "Gran Vía Suites Madrid Spain"
+    ));
+
+    @Test
+    void foldsAccents() {
+        assertEquals(List.of("1"), index.search("bogota", 10));
+        assertEquals(List.of("2"), index.search("Sao Paulo", 10));
+    }
+
+    @Test
+    void toleratesTypos() {
+        assertEquals(List.of("3"), index.search("madird", 10));
+        assertEquals(List.of("1"), index.search("candelarya", 10));
+    }
+
+    @Test
+    void matchesPrefixes() {
+        assertEquals(List.of("3"), index.search("mad", 10));
+    }
+
+    @Test
+    void ranksDocumentsMatchingMoreWords() {
+        List<String> results = index.search("casa brazil spain", 10);
+        assertEquals("2", results.get(0));
+        assertTrue(results.contains("3"));
+    }
+
+    @Test
+    void matchesUsesTheSameRules() {
+        assertTrue(TrigramIndex.matches("bogata", "Hotel Candelaria Bogotá Colombia"));
+        assertFalse(TrigramIndex.matches("lisbon", "Hotel Candelaria Bogotá Colombia"));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.SmartStay.suggest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionTrieTest {
+
+    private final SuggestionTrie trie = SuggestionTrie.build(List.of(
+            new Suggestion("city", "São Paulo, Brazil", null, "Brazil, São Paulo", 5),
+            new Suggestion("city", "Santiago, Chile", null, "Chile, Santiago", 9),
+            new Suggestion("product", "Casa Santa Ana", "1", "Casa Santa Ana", 2)
+    ));
+
+    @Test
+    void ranksByWeight() {
+        List<Suggestion> suggestions = trie.find("sa", 10);
+        assertEquals(List.of("Santiago, Chile", "São Paulo, Brazil", "Casa Santa Ana"),
+                suggestions.stream().map(Suggestion::getText).toList());
+    }
+
+    @Test
+    void matchesWordStartsWithoutAccents() {
+        assertEquals("São Paulo, Brazil", trie.find("PAUL", 10).get(0).getText());
+        assertEquals("São Paulo, Brazil", trie.find("são p", 10).get(0).getText());
+        assertTrue(trie.find("aulo", 10).isEmpty());
+    }
+
+    @Test
+    void limitsResults() {
+        assertEquals(1, trie.find("s", 1).size());
+        assertTrue(trie.find("", 10).isEmpty());
+    }
+}
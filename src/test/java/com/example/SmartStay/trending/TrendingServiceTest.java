@@ -0,0 +1,73 @@
+package com.example.SmartStay.trending;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendingServiceTest {
+
+    @Test
+    void ranksByWeightedActivity() {
+        TrendingService trending = new TrendingService(6);
+        trending.recordView("a");
+        trending.recordView("a");
+        trending.recordBooking("b");
+        trending.recordWishlistAdd("c");
+        trending.refresh();
+
+        assertEquals(List.of("b", "c", "a"), trending.getTop(10));
+        assertEquals(List.of("b"), trending.getTop(1));
+    }
+
+    @Test
+    void keepsOnlyTheTopProducts() {
+        TrendingService trending = new TrendingService(6);
+        for (int i = 0; i < TrendingService.TOP + 10; i++) {
+            for (int views = 0; views <= i; views++) {
+                trending.recordView("p" + i);
+            }
+        }
+        trending.refresh();
+
+        List<String> top = trending.getTop(TrendingService.TOP);
+        assertEquals(TrendingService.TOP, top.size());
+        assertEquals("p" + (TrendingService.TOP + 9), top.get(0));
+        assertFalse(top.contains("p0"));
+    }
+
+    @Test
+    void comparesCountersOfDifferentBases() {
+        TrendingService trending = new TrendingService(6);
+        for (int i = 0; i < 3; i++) {
+            trending.recordView("a");
+        }
+        moveBase(trending, TimeUnit.DAYS.toMillis(1));
+        trending.recordBooking("b");
+        trending.refresh();
+
+        assertEquals(List.of("b", "a"), trending.getTop(10));
+    }
+
+    @Test
+    void prunedProductsAreCountedAgain() {
+        TrendingService trending = new TrendingService(6);
+        trending.recordView("a");
+        trending.record("b", 1e7);
+        trending.refresh();
+        trending.refresh();
+        assertEquals(List.of("b"), trending.getTop(10));
+
+        trending.record("a", 2e7);
+        trending.refresh();
+        assertEquals(List.of("a", "b"), trending.getTop(10));
+    }
+
+    private static void moveBase(TrendingService trending, long millis) {
+        long base = (long) ReflectionTestUtils.getField(trending, "base");
+        ReflectionTestUtils.setField(trending, "base", base + millis);
+    }
+}
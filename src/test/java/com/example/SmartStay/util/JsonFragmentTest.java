@@ -0,0 +1,48 @@
+package com.example.SmartStay.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonFragmentTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<Map<String, Object>> products = List.of(
+            Map.of("id", "1", "name", "Casa Azul São Paulo", "rating", 4.5),
+            // larger than the output buffer of the generator
+            Map.of("id", "2", "name", "x".repeat(20_000), "rating", 0));
+
+    private List<JsonFragment> fragments() throws Exception {
+        return List.of(new JsonFragment(objectMapper.writeValueAsBytes(products.get(0))),
+                new JsonFragment(objectMapper.writeValueAsBytes(products.get(1))));
+    }
+
+    @Test
+    void writesTheSameJsonAsTheObjects() throws Exception {
+        String expected = objectMapper.writeValueAsString(products);
+
+        assertEquals(expected, new String(objectMapper.writeValueAsBytes(fragments()), StandardCharsets.UTF_8));
+        assertEquals(expected, objectMapper.writeValueAsString(fragments()));
+    }
+
+    @Test
+    void worksAsAFieldValue() throws Exception {
+        String expected = objectMapper.writeValueAsString(Map.of("products", products));
+
+        assertEquals(expected, objectMapper.writeValueAsString(Map.of("products", fragments())));
+    }
+
+    @Test
+    void etagIsTheHashOfTheJson() throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(products.get(0));
+
+        assertEquals(DigestUtils.md5DigestAsHex(json), new JsonFragment(json).getEtag());
+    }
+}
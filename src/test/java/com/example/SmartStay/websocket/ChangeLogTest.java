@@ -0,0 +1,72 @@
+package com.example.SmartStay.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeLogTest {
+
+    @Test
+    void returnsChangesAfterSince() {
+        ChangeLog changeLog = new ChangeLog(10);
+        for (long seq = 1; seq <= 5; seq++) {
+            changeLog.record(seq, "updateProduct", List.of("p" + seq));
+        }
+
+        ChangePage page = changeLog.getChangesSince(3, 5);
+        assertTrue(page.isComplete());
+        assertEquals(2, page.getChanges().size());
+        assertEquals(4, page.getChanges().get(0).getSeq());
+        assertEquals(5, page.getLatest());
+    }
+
+    @Test
+    void upToDateClientGetsNothing() {
+        ChangeLog changeLog = new ChangeLog(10);
+        ChangePage page = changeLog.getChangesSince(0, 0);
+        assertTrue(page.isComplete());
+        assertTrue(page.getChanges().isEmpty());
+    }
+
+    @Test
+    void incompleteWhenChangesWereDropped() {
+        ChangeLog changeLog = new ChangeLog(3);
+        for (long seq = 1; seq <= 5; seq++) {
+            changeLog.record(seq, "updateProduct", List.of("p" + seq));
+        }
+
+        assertFalse(changeLog.getChangesSince(1, 5).isComplete());
+        assertTrue(changeLog.getChangesSince(2, 5).isComplete());
+        // sequence restarted
+        assertFalse(changeLog.getChangesSince(9, 5).isComplete());
+    }
+
+    @Test
+    void incompleteWhenASequenceIsMissing() {
+        ChangeLog changeLog = new ChangeLog(10);
+        changeLog.record(1, "updateProduct", List.of("p1"));
+        changeLog.record(3, "updateProduct", List.of("p3"));
+
+        assertFalse(changeLog.getChangesSince(1, 3).isComplete());
+        // relayed but not recorded yet
+        assertFalse(changeLog.getChangesSince(3, 4).isComplete());
+
+        changeLog.record(2, "updateProduct", List.of("p2"));
+        assertTrue(changeLog.getChangesSince(1, 3).isComplete());
+    }
+
+    @Test
+    void returnsEventsThatArrivedAfterSince() {
+        ChangeLog changeLog = new ChangeLog(10);
+        changeLog.record(1, "updateProduct", List.of("p1"));
+        // 3 reached this node before 2
+        changeLog.record(3, "updateProduct", List.of("p3"));
+        changeLog.record(2, "updateProduct", List.of("p2"));
+
+        ChangePage page = changeLog.getChangesSince(3, 3);
+        assertTrue(page.isComplete());
+        assertEquals(List.of(2L), page.getChanges().stream().map(Change::getSeq).toList());
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.SmartStay.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class WebSocketHandlerTest {
+
+    private WebSocketHandler handler;
+    private int sessionIds;
+
+    @BeforeEach
+    void setUp() {
+        handler = new WebSocketHandler();
+        ReflectionTestUtils.setField(handler, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(handler, "maxSessions", 3);
+        ReflectionTestUtils.setField(handler, "maxSessionsPerIp", 2);
+        ReflectionTestUtils.setField(handler, "maxMissedPings", 2);
+        ReflectionTestUtils.setField(handler, "sendTimeLimit", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(handler, "sendBufferLimit", 1024);
+    }
+
+    private WebSocketSession connect(String ip) throws Exception {
+        return connect(ip, new HttpHeaders());
+    }
+
+    private WebSocketSession connect(String ip, HttpHeaders headers) throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(String.valueOf(++sessionIds));
+        when(session.isOpen()).thenReturn(true);
+        when(session.getRemoteAddress()).thenReturn(new InetSocketAddress(ip, 40000));
+        when(session.getHandshakeHeaders()).thenReturn(headers);
+        handler.afterConnectionEstablished(session);
+        return session;
+    }
+
+    @Test
+    void rejectsConnectionsOverThePerIpCap() throws Exception {
+        WebSocketSession first = connect("10.0.0.1");
+        connect("10.0.0.1");
+        WebSocketSession third = connect("10.0.0.1");
+
+        verify(third).close(CloseStatus.SERVICE_OVERLOAD);
+        verify(first, never()).close(any());
+        assertEquals(2, handler.getStats().getSessions());
+        assertEquals(1, handler.getStats().getRejected());
+    }
+
+    @Test
+    void ignoresTheForwardedForHeaderOfTheClient() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.add("X-Forwarded-For", "203.0.113." + i);
+            connect("10.0.0.1", headers);
+        }
+
+        assertEquals(2, handler.getStats().getSessions());
+        assertEquals(1, handler.getStats().getIps());
+    }
+
+    @Test
+    void rejectsConnectionsOverTheGlobalCap() throws Exception {
+        connect("10.0.0.1");
+        connect("10.0.0.2");
+        connect("10.0.0.3");
+        WebSocketSession fourth = connect("10.0.0.4");
+
+        verify(fourth).close(CloseStatus.SERVICE_OVERLOAD);
+        assertEquals(3, handler.getStats().getSessions());
+        assertEquals(3, handler.getStats().getPeak());
+    }
+
+    @Test
+    void closingReleasesThePlaceOfTheIp() throws Exception {
+        WebSocketSession first = connect("10.0.0.1");
+        connect("10.0.0.1");
+        WebSocketSession rejected = connect("10.0.0.1");
+
+        // the rejected session is closed too, it had no place to release
+        handler.afterConnectionClosed(rejected, CloseStatus.SERVICE_OVERLOAD);
+        handler.afterConnectionClosed(first, CloseStatus.NORMAL);
+        handler.afterConnectionClosed(first, CloseStatus.NORMAL);
+
+        WebSocketSession again = connect("10.0.0.1");
+        verify(again, never()).close(any());
+        assertEquals(2, handler.getStats().getSessions());
+        assertEquals(1, handler.getStats().getIps());
+    }
+
+    @Test
+    void evictsSessionsThatMissPings() throws Exception {
+        WebSocketSession silent = connect("10.0.0.1");
+        WebSocketSession answering = connect("10.0.0.2");
+
+        for (int i = 0; i < 3; i++) {
+            handler.heartbeat();
+            handler.handleMessage(answering, new PongMessage());
+        }
+
+        verify(silent, times(2)).sendMessage(any(PingMessage.class));
+        verify(silent).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(answering, never()).close(any());
+        assertEquals(1, handler.getStats().getSessions());
+        assertEquals(1, handler.getStats().getEvicted());
+        assertEquals(1, handler.getStats().getIps());
+    }
+
+    @Test
+    void removesSessionsThatFailToSend() throws Exception {
+        WebSocketSession broken = connect("10.0.0.1");
+        WebSocketSession healthy = connect("10.0.0.2");
+        doThrow(new IOException("Broken pipe")).when(broken).sendMessage(any());
+
+        handler.sendMessageToAllClients(1, "updateProduct", List.of("p1"));
+
+        verify(healthy).sendMessage(any(TextMessage.class));
+        verify(broken).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1, handler.getStats().getSessions());
+        assertEquals(1, handler.getStats().getIps());
+    }
+}